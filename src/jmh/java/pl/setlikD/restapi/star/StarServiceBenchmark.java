@@ -0,0 +1,72 @@
+package pl.setlikD.restapi.star;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Throughput of the in-memory {@link StarService} algorithms across catalog sizes and input orders.
+ * Run it with the {@code benchmark} Maven profile, the default arguments add the GC profiler for allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class StarServiceBenchmark {
+
+    public enum Order {
+        SHUFFLED, SORTED
+    }
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"SHUFFLED", "SORTED"})
+    private Order order;
+
+    private StarService starService;
+    private List<Star> stars;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        starService = new StarService(null, new StarProperties());
+        List<Integer> numbers = IntStream.rangeClosed(1, size)
+                .boxed()
+                .collect(Collectors.toList());
+        if (order == Order.SHUFFLED) {
+            Collections.shuffle(numbers, new Random(42));
+        }
+        stars = numbers.stream()
+                .map(i -> new Star((long) i, "STAR_" + i, i))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public boolean areNamesUnique() throws IOException {
+        return starService.areNamesUnique(stars);
+    }
+
+    @Benchmark
+    public List<Star> findClosestStars() throws IOException {
+        return starService.findClosestStars(stars, 3);
+    }
+
+    @Benchmark
+    public List<Star> filterByRegExpr() {
+        return starService.filterByRegExpr(stars, "[A-Z]+_1[0-9]{2}");
+    }
+
+    @Benchmark
+    public List<Star> listValidator() {
+        StarService.listValidator(stars);
+        return stars;
+    }
+}
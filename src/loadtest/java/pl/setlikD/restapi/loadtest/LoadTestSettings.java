@@ -0,0 +1,86 @@
+package pl.setlikD.restapi.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Load test parameters, read from {@code loadtest.*} system properties.
+ */
+final class LoadTestSettings {
+
+    final int seedSize;
+    final List<Double> rates;
+    final Duration warmup;
+    final Duration stageDuration;
+    final int maxInFlight;
+    final int clientThreads;
+    final long randomSeed;
+    final Path reportDir;
+    final Map<StarWorkload.Operation, Integer> mix;
+
+    private LoadTestSettings(int seedSize, List<Double> rates, Duration warmup, Duration stageDuration,
+                             int maxInFlight, int clientThreads, long randomSeed, Path reportDir,
+                             Map<StarWorkload.Operation, Integer> mix) {
+        this.seedSize = seedSize;
+        this.rates = rates;
+        this.warmup = warmup;
+        this.stageDuration = stageDuration;
+        this.maxInFlight = maxInFlight;
+        this.clientThreads = clientThreads;
+        this.randomSeed = randomSeed;
+        this.reportDir = reportDir;
+        this.mix = mix;
+    }
+
+    static LoadTestSettings fromSystemProperties() {
+        List<Double> rates = Arrays.stream(property("loadtest.rates", "100,200,400,800,1600").split(","))
+                .map(String::trim)
+                .map(Double::valueOf)
+                .collect(Collectors.toList());
+        return new LoadTestSettings(
+                Integer.parseInt(property("loadtest.seed", "10000")),
+                Collections.unmodifiableList(rates),
+                DurationStyle.detectAndParse(property("loadtest.warmup", "10s")),
+                DurationStyle.detectAndParse(property("loadtest.stage-duration", "20s")),
+                Integer.parseInt(property("loadtest.max-in-flight", "5000")),
+                Integer.parseInt(property("loadtest.client-threads", "8")),
+                Long.parseLong(property("loadtest.random-seed", "42")),
+                Paths.get(property("loadtest.report-dir", "target/loadtest")),
+                parseMix(System.getProperty("loadtest.mix", "")));
+    }
+
+    /**
+     * Parses {@code OPERATION=weight} pairs, operations not listed keep their default weight.
+     */
+    private static Map<StarWorkload.Operation, Integer> parseMix(String value) {
+        Map<StarWorkload.Operation, Integer> mix = new EnumMap<>(StarWorkload.Operation.class);
+        for (StarWorkload.Operation operation : StarWorkload.Operation.values()) {
+            mix.put(operation, operation.defaultWeight);
+        }
+        for (String pair : value.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            String[] parts = pair.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid loadtest.mix entry:" + pair);
+            }
+            mix.put(StarWorkload.Operation.valueOf(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        return Collections.unmodifiableMap(mix);
+    }
+
+    private static String property(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
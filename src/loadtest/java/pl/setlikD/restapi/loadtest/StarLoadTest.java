@@ -0,0 +1,269 @@
+package pl.setlikD.restapi.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import pl.setlikD.restapi.StarApplication;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load generator for the star API.
+ * <p>
+ * Boots {@link StarApplication} on a random port against its in-memory H2 database, seeds it through
+ * {@code /stars/batch} and then drives the {@link StarWorkload} at increasing target rates. Arrivals
+ * follow an open model: requests are scheduled on a Poisson timeline regardless of outstanding responses,
+ * and latency is measured from the intended start time, so a stalled server shows up in the histograms
+ * instead of silently slowing the generator down (coordinated omission).
+ * <p>
+ * Every stage writes an HdrHistogram percentile distribution, and the run ends with a
+ * throughput-vs-concurrency table in {@code throughput-vs-concurrency.csv}.
+ * Arguments are passed on to the application, e.g. {@code --spring.jpa.show-sql=true}.
+ */
+public class StarLoadTest {
+
+    private static final int SEED_CHUNK_SIZE = 1000;
+    private static final long DRAIN_TIMEOUT_SECONDS = 60;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final LoadTestSettings settings;
+    private final StarWorkload workload;
+    private final HttpClient client;
+    private final Random random;
+
+    StarLoadTest(LoadTestSettings settings, StarWorkload workload, HttpClient client) {
+        this.settings = settings;
+        this.workload = workload;
+        this.client = client;
+        this.random = new Random(settings.randomSeed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(StarApplication.class)
+                .properties("server.port=0",
+                        "spring.main.banner-mode=off",
+                        "logging.level.pl.setlikD.restapi=WARN")
+                .run(args);
+        ExecutorService executor = Executors.newFixedThreadPool(settings.clientThreads, runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            StarWorkload workload = new StarWorkload("http://localhost:" + port + "/api/v1", settings.mix);
+            new StarLoadTest(settings, workload, client).run();
+        } finally {
+            executor.shutdownNow();
+            context.close();
+        }
+    }
+
+    void run() throws IOException, InterruptedException {
+        seed();
+        Files.createDirectories(settings.reportDir);
+        System.out.printf("Warming up at %.0f req/s for %s%n", settings.rates.get(0), settings.warmup);
+        runStage(settings.rates.get(0), settings.warmup);
+
+        List<StageResult> results = new ArrayList<>();
+        for (double rate : settings.rates) {
+            StageResult result = runStage(rate, settings.stageDuration);
+            writeHistogram(result);
+            results.add(result);
+            System.out.println(result.summary());
+        }
+        writeCurve(results);
+        System.out.println("Reports written to " + settings.reportDir.toAbsolutePath());
+    }
+
+    private void seed() throws IOException, InterruptedException {
+        for (int from = 0; from < settings.seedSize; from += SEED_CHUNK_SIZE) {
+            int to = Math.min(from + SEED_CHUNK_SIZE, settings.seedSize);
+            HttpResponse<String> response = client.send(workload.seedRequest(from, to),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with status " + response.statusCode()
+                        + ": " + response.body());
+            }
+            workload.registerSeeded(response);
+        }
+        if (workload.seededCount() == 0) {
+            throw new IllegalStateException("Seeding did not create any star, loadtest.seed must be greater than 0");
+        }
+        System.out.printf("Seeded %d stars%n", workload.seededCount());
+    }
+
+    private StageResult runStage(double rate, Duration duration) throws InterruptedException {
+        StageResult result = new StageResult(rate);
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        double offset = 0;
+        while (true) {
+            offset += -Math.log(1 - random.nextDouble()) * meanIntervalNanos;
+            long intendedStart = start + (long) offset;
+            if (intendedStart - end >= 0) {
+                break;
+            }
+            waitUntil(intendedStart);
+            int inFlight = result.inFlight.incrementAndGet();
+            result.sampleConcurrency(inFlight);
+            if (inFlight > settings.maxInFlight) {
+                result.inFlight.decrementAndGet();
+                result.dropped.increment();
+                continue;
+            }
+            StarWorkload.Operation operation = workload.next(random);
+            HttpRequest request = workload.request(operation, random);
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        result.record(operation, System.nanoTime() - intendedStart, response, error);
+                        if (response != null) {
+                            workload.onResponse(operation, response);
+                        }
+                        result.inFlight.decrementAndGet();
+                    });
+        }
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_TIMEOUT_SECONDS);
+        while (result.inFlight.get() > 0 && System.nanoTime() - drainDeadline < 0) {
+            Thread.sleep(10);
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private void writeHistogram(StageResult result) throws IOException {
+        Path file = settings.reportDir.resolve(String.format(Locale.ROOT, "stage-%.0f.hgrm", result.targetRate));
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            out.println("# all operations, latency in milliseconds");
+            result.latency.outputPercentileDistribution(out, NANOS_PER_MILLI);
+            for (Map.Entry<StarWorkload.Operation, Histogram> entry : result.latencyByOperation.entrySet()) {
+                if (entry.getValue().getTotalCount() > 0) {
+                    out.println();
+                    out.println("# " + entry.getKey() + ", latency in milliseconds");
+                    entry.getValue().outputPercentileDistribution(out, NANOS_PER_MILLI);
+                }
+            }
+        }
+    }
+
+    private void writeCurve(List<StageResult> results) throws IOException {
+        Path file = settings.reportDir.resolve("throughput-vs-concurrency.csv");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            out.println("target_rate,throughput,mean_concurrency,max_concurrency,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,"
+                    + "client_errors,server_errors,failures,dropped");
+            for (StageResult result : results) {
+                out.println(result.csv());
+            }
+        }
+    }
+
+    /**
+     * Latencies and counters of one constant-rate stage. Concurrency is sampled at every arrival,
+     * which for Poisson arrivals is an unbiased estimate of the time-averaged number of requests in flight.
+     */
+    private static final class StageResult {
+
+        private final double targetRate;
+        private final Histogram latency = new ConcurrentHistogram(3);
+        private final Map<StarWorkload.Operation, Histogram> latencyByOperation =
+                new EnumMap<>(StarWorkload.Operation.class);
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder clientErrors = new LongAdder();
+        private final LongAdder serverErrors = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private long concurrencySum;
+        private long concurrencySamples;
+        private int maxConcurrency;
+        private long elapsedNanos;
+
+        private StageResult(double targetRate) {
+            this.targetRate = targetRate;
+            for (StarWorkload.Operation operation : StarWorkload.Operation.values()) {
+                latencyByOperation.put(operation, new ConcurrentHistogram(3));
+            }
+        }
+
+        private void sampleConcurrency(int inFlight) {
+            concurrencySum += inFlight;
+            concurrencySamples++;
+            maxConcurrency = Math.max(maxConcurrency, inFlight);
+        }
+
+        private void record(StarWorkload.Operation operation, long latencyNanos,
+                            HttpResponse<String> response, Throwable error) {
+            latency.recordValue(latencyNanos);
+            latencyByOperation.get(operation).recordValue(latencyNanos);
+            if (error != null) {
+                failures.increment();
+            } else if (response.statusCode() >= 500) {
+                serverErrors.increment();
+            } else if (response.statusCode() >= 400) {
+                clientErrors.increment();
+            }
+        }
+
+        private double throughput() {
+            return latency.getTotalCount() / (elapsedNanos / 1e9);
+        }
+
+        private double meanConcurrency() {
+            return concurrencySamples == 0 ? 0 : (double) concurrencySum / concurrencySamples;
+        }
+
+        private double percentile(double percentile) {
+            return latency.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+        }
+
+        private String summary() {
+            return String.format(Locale.ROOT,
+                    "target %.0f req/s: %.1f req/s, concurrency mean %.1f max %d, latency p50 %.2f ms p99 %.2f ms "
+                            + "p99.9 %.2f ms max %.2f ms, 4xx %d, 5xx %d, failures %d, dropped %d",
+                    targetRate, throughput(), meanConcurrency(), maxConcurrency, percentile(50), percentile(99),
+                    percentile(99.9), latency.getMaxValue() / NANOS_PER_MILLI, clientErrors.sum(),
+                    serverErrors.sum(), failures.sum(), dropped.sum());
+        }
+
+        private String csv() {
+            return String.format(Locale.ROOT, "%.0f,%.2f,%.2f,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d,%d,%d",
+                    targetRate, throughput(), meanConcurrency(), maxConcurrency, percentile(50), percentile(90),
+                    percentile(99), percentile(99.9), latency.getMaxValue() / NANOS_PER_MILLI, clientErrors.sum(),
+                    serverErrors.sum(), failures.sum(), dropped.sum());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package pl.setlikD.restapi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The mixed CRUD + query workload against {@code /api/v1/stars}.
+ * <p>
+ * Reads target the seeded stars only, writes work on stars created by the workload itself,
+ * so a delete never turns a later read of the seeded data into a 404.
+ */
+class StarWorkload {
+
+    enum Operation {
+        GET_BY_ID(50),
+        LIST_PAGE(15),
+        CREATE(10),
+        UPDATE(5),
+        PATCH(5),
+        DELETE(5),
+        CLOSEST(5),
+        REGEX(5);
+
+        final int defaultWeight;
+
+        Operation(int defaultWeight) {
+            this.defaultWeight = defaultWeight;
+        }
+    }
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final List<Long> seededIds = new ArrayList<>();
+    private final ConcurrentLinkedDeque<Long> createdIds = new ConcurrentLinkedDeque<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    StarWorkload(String baseUrl, Map<Operation, Integer> mix) {
+        this.baseUrl = baseUrl;
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("The workload mix needs at least one weighted operation");
+        }
+    }
+
+    HttpRequest seedRequest(int from, int to) {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                body.append(',');
+            }
+            body.append(starJson("LOAD_" + i, i));
+        }
+        body.append(']');
+        return json(URI.create(baseUrl + "/stars/batch"), "POST", body.toString());
+    }
+
+    void registerSeeded(HttpResponse<String> response) {
+        for (JsonNode result : readTree(response.body())) {
+            if ("CREATED".equals(result.path("status").asText())) {
+                seededIds.add(result.path("id").asLong());
+            }
+        }
+        sequence.set(seededIds.size());
+    }
+
+    int seededCount() {
+        return seededIds.size();
+    }
+
+    Operation next(Random random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    /**
+     * Builds the request of the given operation, write operations without a created star fall back to a read.
+     */
+    HttpRequest request(Operation operation, Random random) {
+        Long createdId;
+        switch (operation) {
+            case LIST_PAGE:
+                return get("/stars?limit=100&after=" + randomSeededId(random));
+            case CREATE:
+                long next = sequence.incrementAndGet();
+                return json(URI.create(baseUrl + "/stars"), "POST", starJson("LOAD_" + next, next));
+            case UPDATE:
+                createdId = rotateCreatedId();
+                if (createdId == null) {
+                    break;
+                }
+                return json(URI.create(baseUrl + "/stars/" + createdId), "PUT",
+                        starJson("LOAD_U_" + createdId, sequence.incrementAndGet()));
+            case PATCH:
+                createdId = rotateCreatedId();
+                if (createdId == null) {
+                    break;
+                }
+                return json(URI.create(baseUrl + "/stars/" + createdId), "PATCH",
+                        "{\"distance\":" + sequence.incrementAndGet() + "}");
+            case DELETE:
+                createdId = createdIds.pollFirst();
+                if (createdId == null) {
+                    break;
+                }
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/stars/" + createdId))
+                        .timeout(REQUEST_TIMEOUT)
+                        .DELETE()
+                        .build();
+            case CLOSEST:
+                return get("/stars/closest/10");
+            case REGEX:
+                String regex = "LOAD_" + (1 + random.nextInt(9)) + "[0-9]{2}";
+                return get("/stars/regex?regex=" + URLEncoder.encode(regex, StandardCharsets.UTF_8));
+            default:
+                break;
+        }
+        return get("/stars/" + randomSeededId(random));
+    }
+
+    void onResponse(Operation operation, HttpResponse<String> response) {
+        if (operation == Operation.CREATE && response.statusCode() == 200) {
+            createdIds.offerLast(readTree(response.body()).path("id").asLong());
+        }
+    }
+
+    private Long rotateCreatedId() {
+        Long id = createdIds.pollFirst();
+        if (id != null) {
+            createdIds.offerLast(id);
+        }
+        return id;
+    }
+
+    private long randomSeededId(Random random) {
+        return seededIds.get(random.nextInt(seededIds.size()));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+
+    private static HttpRequest json(URI uri, String method, String body) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static String starJson(String name, long distance) {
+        return "{\"name\":\"" + name + "\",\"distance\":" + distance + "}";
+    }
+
+    private JsonNode readTree(String body) {
+        try {
+            return body == null || body.isEmpty() ? objectMapper.nullNode() : objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package pl.setlikD.restapi;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the {@code @Scheduled} maintenance tasks, kept out of {@link StarApplication} so test slices do not schedule them.
+ */
+@Configuration
+@EnableScheduling
+class SchedulingConfiguration {
+}
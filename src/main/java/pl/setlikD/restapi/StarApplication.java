@@ -2,11 +2,22 @@ package pl.setlikD.restapi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 public class StarApplication {
 
+    /**
+     * Exits once the application is ready, used by the {@code cds} build profile to record the class-data-sharing archive.
+     */
+    static final String EXIT_ON_READY_PROPERTY = "star.startup.exit-on-ready";
+
     public static void main(String[] args) {
-        SpringApplication.run(StarApplication.class, args);
+        SpringApplication application = new SpringApplication(StarApplication.class);
+        application.addListeners(new StartupTimingReport());
+        ConfigurableApplicationContext context = application.run(args);
+        if (context.getEnvironment().getProperty(EXIT_ON_READY_PROPERTY, Boolean.class, false)) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 }
@@ -0,0 +1,143 @@
+package pl.setlikD.restapi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.boot.sql.init.AbstractScriptDatabaseInitializer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.SmartApplicationListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logs how long the startup phases took: the JVM up to {@code main}, the context refresh with the datasource
+ * initialization and the JPA bootstrap inside it, then the time from the JVM start to the application being
+ * ready and to the first request being served. With lazy initialization, or the JPA bootstrap running in the
+ * background, a phase may complete after the application is ready, it is then logged on its own.
+ */
+class StartupTimingReport implements SmartApplicationListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupTimingReport.class.getName());
+    private static final String MAIN = "JVM to main";
+    private static final String CONTEXT_REFRESH = "context refresh";
+    private static final String DATASOURCE_INIT = "datasource init";
+    private static final String JPA_BOOTSTRAP = "JPA bootstrap";
+
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+    private final Map<String, Long> phaseStarts = new ConcurrentHashMap<>();
+    private ApplicationContext context;
+    private long refreshStart;
+    private volatile boolean ready;
+    private volatile boolean requestHandled;
+
+    @Override
+    public boolean supportsEventType(Class<? extends ApplicationEvent> eventType) {
+        return ApplicationStartingEvent.class.isAssignableFrom(eventType)
+                || ApplicationPreparedEvent.class.isAssignableFrom(eventType)
+                || ContextRefreshedEvent.class.isAssignableFrom(eventType)
+                || ApplicationReadyEvent.class.isAssignableFrom(eventType)
+                || ServletRequestHandledEvent.class.isAssignableFrom(eventType);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationStartingEvent) {
+            phaseMillis.put(MAIN, uptime());
+        } else if (event instanceof ApplicationPreparedEvent) {
+            context = ((ApplicationPreparedEvent) event).getApplicationContext();
+            ((ApplicationPreparedEvent) event).getApplicationContext().getBeanFactory().addBeanPostProcessor(phaseTimer());
+            refreshStart = uptime();
+        } else if (event instanceof ContextRefreshedEvent) {
+            if (((ContextRefreshedEvent) event).getApplicationContext() == context) {
+                phaseMillis.put(CONTEXT_REFRESH, uptime() - refreshStart);
+            }
+        } else if (event instanceof ApplicationReadyEvent) {
+            ready = true;
+            logReport();
+        } else if (!requestHandled && event instanceof ServletRequestHandledEvent) {
+            requestHandled = true;
+            LOGGER.info("Startup timing: first request served " + uptime() + " ms after the JVM start");
+        }
+    }
+
+    private synchronized void logReport() {
+        StringJoiner refreshPhases = new StringJoiner(", ", " (", ")");
+        for (String phase : new String[]{DATASOURCE_INIT, JPA_BOOTSTRAP}) {
+            Long millis = phaseMillis.get(phase);
+            refreshPhases.add(phase + (millis == null ? " pending" : " " + millis + " ms"));
+        }
+        StringJoiner report = new StringJoiner(", ", "Startup timing: ", "");
+        report.add(MAIN + " " + phaseMillis.get(MAIN) + " ms");
+        report.add(CONTEXT_REFRESH + " " + phaseMillis.get(CONTEXT_REFRESH) + " ms" + refreshPhases);
+        report.add("ready " + uptime() + " ms after the JVM start");
+        LOGGER.info(report.toString());
+    }
+
+    private synchronized void phaseCompleted(String phase, long millis) {
+        phaseMillis.put(phase, millis);
+        if (ready) {
+            LOGGER.info("Startup timing: " + phase + " " + millis + " ms, completed after the application was ready");
+        }
+    }
+
+    private BeanPostProcessor phaseTimer() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (phaseOf(bean) != null) {
+                    phaseStarts.put(beanName, uptime());
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                String phase = phaseOf(bean);
+                Long start = phase == null ? null : phaseStarts.remove(beanName);
+                if (start == null) {
+                    return bean;
+                }
+                AsyncTaskExecutor bootstrapExecutor = bean instanceof AbstractEntityManagerFactoryBean
+                        ? ((AbstractEntityManagerFactoryBean) bean).getBootstrapExecutor()
+                        : null;
+                if (bootstrapExecutor != null) {
+                    // bootstrapped in the background, the native factory is handed out once it is built,
+                    // wait for it on the bootstrap executor rather than on the common pool
+                    bootstrapExecutor.execute(() -> {
+                        ((AbstractEntityManagerFactoryBean) bean).getNativeEntityManagerFactory();
+                        phaseCompleted(phase, uptime() - start);
+                    });
+                } else {
+                    phaseCompleted(phase, uptime() - start);
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static String phaseOf(Object bean) {
+        if (bean instanceof AbstractScriptDatabaseInitializer) {
+            return DATASOURCE_INIT;
+        }
+        if (bean instanceof AbstractEntityManagerFactoryBean) {
+            return JPA_BOOTSTRAP;
+        }
+        return null;
+    }
+
+    private static long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
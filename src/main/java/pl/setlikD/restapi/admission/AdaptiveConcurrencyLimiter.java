@@ -0,0 +1,136 @@
+package pl.setlikD.restapi.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit adjusted by additive increase, multiplicative decrease (AIMD).
+ * <p>
+ * A request completing under the latency threshold while the limit is at least half used raises the limit by one,
+ * a slow or failed one multiplies it by the backoff ratio. Requests over the limit wait in a bounded queue for at most
+ * {@code maxWait}, once the queue is full they are rejected right away, so a burst never piles up unbounded work.
+ */
+class AdaptiveConcurrencyLimiter {
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition slotReleased = lock.newCondition();
+    private final AtomicLong rejected = new AtomicLong();
+    private double limit;
+    private int inFlight;
+    private int queued;
+
+    AdaptiveConcurrencyLimiter(String name, AdmissionProperties.Limit settings) {
+        if (settings.getMinLimit() < 1 || settings.getMinLimit() > settings.getMaxLimit()) {
+            throw new IllegalArgumentException("The limits of " + name + " should satisfy 1 <= min-limit <= max-limit");
+        }
+        this.name = name;
+        this.minLimit = settings.getMinLimit();
+        this.maxLimit = settings.getMaxLimit();
+        this.maxQueue = settings.getMaxQueue();
+        this.maxWaitNanos = settings.getMaxWait().toNanos();
+        this.latencyThresholdNanos = settings.getLatencyThreshold().toNanos();
+        this.backoffRatio = settings.getBackoffRatio();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, settings.getInitialLimit()));
+    }
+
+    /**
+     * Takes a slot, waiting in the queue if the limit is reached.
+     *
+     * @return false when the queue is full or the wait timed out, the request should then be rejected
+     */
+    boolean tryAcquire() throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return true;
+            }
+            if (queued >= maxQueue) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            queued++;
+            try {
+                long nanos = maxWaitNanos;
+                while (inFlight >= (int) limit) {
+                    if (nanos <= 0) {
+                        rejected.incrementAndGet();
+                        return false;
+                    }
+                    nanos = slotReleased.awaitNanos(nanos);
+                }
+                inFlight++;
+                return true;
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the slot taken by {@link #tryAcquire()} and adjusts the limit to the outcome of the request.
+     *
+     * @param latencyNanos how long the request held the slot
+     * @param failed       whether the request failed on the server side
+     */
+    void release(long latencyNanos, boolean failed) {
+        lock.lock();
+        try {
+            if (failed || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+                slotReleased.signal();
+            }
+            inFlight--;
+            slotReleased.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getRejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,59 @@
+package pl.setlikD.restapi.admission;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Admission control of the {@link AdmissionControlled} endpoints, on unless {@code star.admission.enabled=false}.
+ * <p>
+ * Every endpoint class publishes its current limit, in-flight and queued requests as gauges and its rejections as
+ * a counter, all tagged with the class name.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "star.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(AdmissionProperties.class)
+class AdmissionConfiguration implements WebMvcConfigurer {
+
+    private final AdmissionInterceptor admissionInterceptor;
+
+    AdmissionConfiguration(AdmissionProperties properties) {
+        this.admissionInterceptor = new AdmissionInterceptor(properties);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admissionInterceptor);
+    }
+
+    @Bean
+    MeterBinder admissionMetrics() {
+        return registry -> admissionInterceptor.forEachLimiter(limiter -> bindMetrics(limiter, registry));
+    }
+
+    private static void bindMetrics(AdaptiveConcurrencyLimiter limiter, MeterRegistry registry) {
+        Gauge.builder("star.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("class", limiter.getName())
+                .register(registry);
+        Gauge.builder("star.admission.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Admitted requests running")
+                .tag("class", limiter.getName())
+                .register(registry);
+        Gauge.builder("star.admission.queued", limiter, AdaptiveConcurrencyLimiter::getQueued)
+                .description("Requests waiting for a slot")
+                .tag("class", limiter.getName())
+                .register(registry);
+        FunctionCounter.builder("star.admission.rejected", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                .description("Requests answered 429 Too Many Requests")
+                .tag("class", limiter.getName())
+                .register(registry);
+    }
+}
@@ -0,0 +1,24 @@
+package pl.setlikD.restapi.admission;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts a handler method behind the adaptive concurrency limit of its endpoint class, see {@link AdmissionInterceptor}.
+ * Handlers sharing a class share one limit, configured with {@code star.admission.classes.<class>.*}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface AdmissionControlled {
+
+    String ANALYTICS = "analytics";
+
+    /**
+     * @return name of the endpoint class
+     */
+    String value() default ANALYTICS;
+}
@@ -0,0 +1,99 @@
+package pl.setlikD.restapi.admission;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Runs the {@link AdmissionControlled} handlers behind the {@link AdaptiveConcurrencyLimiter} of their endpoint class,
+ * one bulkhead per class, so a spike of expensive requests cannot take every worker thread and connection away from
+ * the rest of the API. A request that is not admitted is answered {@code 429 Too Many Requests} with {@code Retry-After}.
+ */
+class AdmissionInterceptor implements HandlerInterceptor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdmissionInterceptor.class.getName());
+    private static final String ADMITTED_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".limiter";
+    private static final String START_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".start";
+
+    private final AdmissionProperties properties;
+    private final ConcurrentMap<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private final List<Consumer<AdaptiveConcurrencyLimiter>> limiterListeners = new ArrayList<>();
+
+    AdmissionInterceptor(AdmissionProperties properties) {
+        this.properties = properties;
+        properties.getClasses().keySet().forEach(this::limiterOf);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        AdmissionControlled admissionControlled = ((HandlerMethod) handler).getMethodAnnotation(AdmissionControlled.class);
+        if (admissionControlled == null) {
+            return true;
+        }
+        AdaptiveConcurrencyLimiter limiter = limiterOf(admissionControlled.value());
+        boolean admitted;
+        try {
+            admitted = limiter.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            LOGGER.debug("Rejected request to " + request.getRequestURI() + ", " + limiter.getName() + " limit:" + limiter.getLimit());
+            long retryAfter = Math.max(1, properties.limitOf(limiter.getName()).getRetryAfter().toSeconds());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many " + limiter.getName() + " requests");
+            return false;
+        }
+        request.setAttribute(ADMITTED_ATTRIBUTE, limiter);
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        AdaptiveConcurrencyLimiter limiter = (AdaptiveConcurrencyLimiter) request.getAttribute(ADMITTED_ATTRIBUTE);
+        if (limiter == null) {
+            return;
+        }
+        request.removeAttribute(ADMITTED_ATTRIBUTE);
+        long latencyNanos = System.nanoTime() - (Long) request.getAttribute(START_ATTRIBUTE);
+        limiter.release(latencyNanos, ex != null || response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value());
+    }
+
+    /**
+     * Runs the action for every limiter, the existing ones and those created later for new endpoint classes.
+     */
+    synchronized void forEachLimiter(Consumer<AdaptiveConcurrencyLimiter> action) {
+        limiterListeners.add(action);
+        limiters.values().forEach(action);
+    }
+
+    AdaptiveConcurrencyLimiter limiterOf(String endpointClass) {
+        AdaptiveConcurrencyLimiter limiter = limiters.get(endpointClass);
+        return limiter != null ? limiter : createLimiter(endpointClass);
+    }
+
+    private synchronized AdaptiveConcurrencyLimiter createLimiter(String endpointClass) {
+        return limiters.computeIfAbsent(endpointClass, name -> {
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(name, properties.limitOf(name));
+            limiterListeners.forEach(listener -> listener.accept(limiter));
+            return limiter;
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package pl.setlikD.restapi.admission;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Admission control of the {@link AdmissionControlled} endpoints, bound from the {@code star.admission.*} properties.
+ */
+@ConfigurationProperties("star.admission")
+@Getter
+@Setter
+class AdmissionProperties {
+
+    /**
+     * Whether the {@link AdmissionControlled} endpoints are limited.
+     */
+    private boolean enabled = true;
+    /**
+     * Limits by endpoint class, a class missing here gets the defaults.
+     */
+    private Map<String, Limit> classes = new LinkedHashMap<>(Map.of(AdmissionControlled.ANALYTICS, new Limit()));
+
+    Limit limitOf(String endpointClass) {
+        return classes.getOrDefault(endpointClass, new Limit());
+    }
+
+    @Getter
+    @Setter
+    static class Limit {
+        /**
+         * Concurrency limit to start from.
+         */
+        private int initialLimit = 4;
+        /**
+         * Lowest limit the multiplicative decrease goes down to.
+         */
+        private int minLimit = 1;
+        /**
+         * Highest limit the additive increase goes up to.
+         */
+        private int maxLimit = 32;
+        /**
+         * Maximum number of requests queued behind the limit before new ones are rejected.
+         */
+        private int maxQueue = 16;
+        /**
+         * How long a queued request waits for a slot before it is rejected.
+         */
+        private Duration maxWait = Duration.ofSeconds(1);
+        /**
+         * Requests slower than this, or failing, shrink the limit.
+         */
+        private Duration latencyThreshold = Duration.ofMillis(500);
+        /**
+         * Factor the limit is multiplied by on a slow or failed request.
+         */
+        private double backoffRatio = 0.9;
+        /**
+         * Value of the {@code Retry-After} header of rejected requests.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,87 @@
+package pl.setlikD.restapi.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for replication between two H2 databases.
+ * <p>
+ * The replica is created from {@code schema.sql}. It links the primary's star table and copies it over in one
+ * transaction every interval, so readers of the replica see a consistent snapshot lagging the primary by up to the interval.
+ */
+class H2ReplicaSync implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(H2ReplicaSync.class.getName());
+    private static final String LINK_PRIMARY =
+            "create linked table if not exists primary_star('org.h2.Driver', %s, %s, %s, 'STAR') readonly";
+    private static final String COPY_STARS =
+            "insert into star(id, name, distance, version) select id, name, distance, version from primary_star";
+
+    private final DataSource replica;
+    private final String primaryUrl;
+    private final String primaryUsername;
+    private final String primaryPassword;
+    private final Duration interval;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "h2-replica-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    H2ReplicaSync(DataSource replica, String primaryUrl, String primaryUsername, String primaryPassword, Duration interval) {
+        this.replica = replica;
+        this.primaryUrl = primaryUrl;
+        this.primaryUsername = primaryUsername;
+        this.primaryPassword = primaryPassword;
+        this.interval = interval;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(replica);
+        LOGGER.info("Syncing the H2 replica from " + primaryUrl + " every " + interval);
+        executor.scheduleWithFixedDelay(this::sync, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    void sync() {
+        try (Connection connection = replica.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(String.format(LINK_PRIMARY, quote(primaryUrl), quote(primaryUsername), quote(primaryPassword)));
+                statement.executeUpdate("delete from star");
+                statement.executeUpdate(COPY_STARS);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            // the primary schema may not be initialized yet, the next run retries
+            LOGGER.debug("Replica sync failed:" + e.getMessage());
+        }
+    }
+
+    private static String quote(String value) {
+        return "'" + (value == null ? "" : value.replace("'", "''")) + "'";
+    }
+}
@@ -0,0 +1,37 @@
+package pl.setlikD.restapi.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Read replica routing, bound from the {@code star.datasource.replica.*} properties.
+ */
+@ConfigurationProperties("star.datasource.replica")
+@Getter
+@Setter
+class ReplicaProperties {
+
+    /**
+     * Whether read-only transactions are sent to the replica.
+     */
+    private boolean enabled;
+    /**
+     * JDBC url of the replica.
+     */
+    private String url;
+    private String username = "sa";
+    private String password = "";
+    /**
+     * How far the replica may lag behind the primary. Reads stay on the primary for this long after a write
+     * commits, so a client reading its own write never hits a replica that has not received it yet.
+     */
+    private Duration maxLag = Duration.ofSeconds(1);
+    /**
+     * Interval of the local stand-in replication between two H2 databases, disabled when not set.
+     * It should stay below {@code max-lag}.
+     */
+    private Duration localSyncInterval;
+}
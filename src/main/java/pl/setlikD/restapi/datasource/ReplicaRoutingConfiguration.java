@@ -0,0 +1,65 @@
+package pl.setlikD.restapi.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Read/write routing, enabled with {@code star.datasource.replica.enabled=true} (see the {@code replica} profile).
+ * <p>
+ * The primary pool is built from the {@code spring.datasource.*} properties and the replica pool from
+ * {@code star.datasource.replica.*}. JPA, the SQL scripts and everything else use the routing data source,
+ * which sends {@code @Transactional(readOnly = true)} work to the replica.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "star.datasource.replica", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+class ReplicaRoutingConfiguration {
+
+    @Bean
+    DataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    DataSource replicaDataSource(ReplicaProperties properties) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(properties.getUrl())
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .build();
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                          @Qualifier("replicaDataSource") DataSource replica,
+                          ReplicaProperties properties) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, properties.getMaxLag());
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "star.datasource.replica", name = "local-sync-interval")
+    H2ReplicaSync h2ReplicaSync(@Qualifier("replicaDataSource") DataSource replica,
+                                DataSourceProperties primary,
+                                ReplicaProperties properties) {
+        return new H2ReplicaSync(replica, primary.determineUrl(), primary.determineUsername(),
+                primary.determinePassword(), properties.getLocalSyncInterval());
+    }
+}
@@ -0,0 +1,86 @@
+package pl.setlikD.restapi.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends connections of read-only transactions to the replica and everything else to the primary.
+ * <p>
+ * The route is picked when a connection is requested, which has to happen after the transaction is set up,
+ * so this data source is meant to sit behind a {@code LazyConnectionDataSourceProxy}.
+ * Reads go to the primary from the moment a read-write transaction is routed until {@code maxLag} after it commits,
+ * so nobody reads a replica that may not have received that write yet. The window opens before the commit because
+ * the after-commit callbacks, such as cache invalidation, already let other requests see the new catalog version.
+ */
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private static final long NO_WRITE = Long.MIN_VALUE;
+
+    private final long maxLagNanos;
+    private final AtomicLong lastWriteNanos = new AtomicLong(NO_WRITE);
+
+    ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration maxLag) {
+        this.maxLagNanos = maxLag.toNanos();
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Route.PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            trackWrite();
+            return Route.PRIMARY;
+        }
+        return recentWrite() ? Route.PRIMARY : Route.REPLICA;
+    }
+
+    private boolean recentWrite() {
+        long lastWrite = lastWriteNanos.get();
+        return lastWrite != NO_WRITE && System.nanoTime() - lastWrite < maxLagNanos;
+    }
+
+    /**
+     * Starts the primary-only window for the current read-write transaction and extends it from its commit,
+     * once per transaction.
+     */
+    private void trackWrite() {
+        markWrite();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // the transaction may have run longer than maxLag since it was routed
+                markWrite();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ReplicaRoutingDataSource.this);
+                if (status == STATUS_COMMITTED) {
+                    markWrite();
+                }
+            }
+        });
+    }
+
+    private void markWrite() {
+        lastWriteNanos.accumulateAndGet(System.nanoTime(), Math::max);
+    }
+}
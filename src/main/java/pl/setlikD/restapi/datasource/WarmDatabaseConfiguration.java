@@ -0,0 +1,26 @@
+package pl.setlikD.restapi.datasource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Reuses an already seeded database, enabled with {@code star.startup.reuse-database=true} (see the {@code fast} profile).
+ * It replaces the Spring Boot script initializer, so JPA still waits for the schema on the first start.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "star.startup", name = "reuse-database", havingValue = "true")
+@EnableConfigurationProperties(SqlInitializationProperties.class)
+class WarmDatabaseConfiguration {
+
+    @Bean
+    SqlDataSourceScriptDatabaseInitializer dataSourceScriptDatabaseInitializer(DataSource dataSource,
+                                                                               SqlInitializationProperties properties) {
+        return new WarmDatabaseInitializer(dataSource, properties);
+    }
+}
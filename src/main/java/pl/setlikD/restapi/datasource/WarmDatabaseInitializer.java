@@ -0,0 +1,143 @@
+package pl.setlikD.restapi.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Runs {@code schema.sql} and {@code data.sql} only when the star table does not exist yet, so a persistent
+ * database seeded by a previous start is reused as it is instead of being replayed.
+ * <p>
+ * The seeding records a checksum of the scripts in the {@code star_schema_marker} table. A database seeded from
+ * other scripts, or before the marker existed, is not reused: the start fails and asks for the database to be
+ * deleted, since replaying the scripts over it would fail on the existing objects.
+ */
+class WarmDatabaseInitializer extends SqlDataSourceScriptDatabaseInitializer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmDatabaseInitializer.class.getName());
+    private static final String MARKER_TABLE = "STAR_SCHEMA_MARKER";
+
+    private final DataSource dataSource;
+    private final SqlInitializationProperties properties;
+    private final ResourcePatternResolver resourceResolver = new PathMatchingResourcePatternResolver();
+
+    WarmDatabaseInitializer(DataSource dataSource, SqlInitializationProperties properties) {
+        super(dataSource, properties);
+        this.dataSource = dataSource;
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean initializeDatabase() {
+        String checksum = scriptsChecksum();
+        try {
+            if (isInitialized(checksum)) {
+                LOGGER.info("Reusing the warm database seeded from scripts " + checksum
+                        + ", schema.sql and data.sql are not replayed");
+                return false;
+            }
+            LOGGER.info("Seeding the database from scripts " + checksum + ", the next starts reuse it");
+            boolean initialized = super.initializeDatabase();
+            if (initialized) {
+                writeMarker(checksum);
+            }
+            return initialized;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot check whether the database is initialized", e);
+        }
+    }
+
+    private boolean isInitialized(String checksum) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!hasTable(connection, "STAR")) {
+                return false;
+            }
+            String seededChecksum = hasTable(connection, MARKER_TABLE) ? readMarker(connection) : null;
+            if (!checksum.equals(seededChecksum)) {
+                throw new IllegalStateException("The warm database " + connection.getMetaData().getURL()
+                        + " was seeded from other SQL scripts (checksum " + seededChecksum + ", expected " + checksum
+                        + "), delete it to seed it again");
+            }
+            return true;
+        }
+    }
+
+    private static boolean hasTable(Connection connection, String table) throws SQLException {
+        try (ResultSet tables = connection.getMetaData().getTables(null, null, table, new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    private static String readMarker(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet marker = statement.executeQuery("select checksum from " + MARKER_TABLE)) {
+            return marker.next() ? marker.getString(1) : null;
+        }
+    }
+
+    private void writeMarker(String checksum) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table " + MARKER_TABLE + "(checksum varchar(64) not null)");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("insert into " + MARKER_TABLE + " values (?)")) {
+                insert.setString(1, checksum);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * SHA-256 of the schema and data scripts, resolved from the same locations as the Spring Boot initializer.
+     */
+    private String scriptsChecksum() {
+        List<String> locations = new ArrayList<>();
+        locations.addAll(locations(properties.getSchemaLocations(), "schema"));
+        locations.addAll(locations(properties.getDataLocations(), "data"));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String location : locations) {
+                for (Resource resource : resourceResolver.getResources(location.replaceFirst("^optional:", ""))) {
+                    if (!resource.exists()) {
+                        continue;
+                    }
+                    try (InputStream script = resource.getInputStream()) {
+                        digest.update(script.readAllBytes());
+                    }
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the database scripts", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<String> locations(List<String> configured, String fallback) {
+        if (configured != null) {
+            return configured;
+        }
+        return List.of("optional:classpath*:" + fallback + "-" + properties.getPlatform() + ".sql",
+                "optional:classpath*:" + fallback + ".sql");
+    }
+}
@@ -0,0 +1,60 @@
+package pl.setlikD.restapi.metrics;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+
+/**
+ * Counts the JDBC statements prepared and the entities loaded by Hibernate on the current thread.
+ * Counting only happens between {@link #begin()} and {@link #end()}, threads outside of a request are ignored.
+ */
+class HibernateRequestCounters extends EmptyInterceptor implements StatementInspector {
+
+    private static final int STATEMENTS = 0;
+    private static final int ENTITY_LOADS = 1;
+    private final ThreadLocal<long[]> counters = new ThreadLocal<>();
+
+    void begin() {
+        counters.set(new long[2]);
+    }
+
+    /**
+     * Stops counting on the current thread.
+     *
+     * @return number of statements and entity loads since {@link #begin()}, null if counting was not started
+     */
+    long[] end() {
+        long[] current = counters.get();
+        counters.remove();
+        return current;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        increment(STATEMENTS);
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        increment(ENTITY_LOADS);
+        return false;
+    }
+
+    static long statements(long[] counters) {
+        return counters[STATEMENTS];
+    }
+
+    static long entityLoads(long[] counters) {
+        return counters[ENTITY_LOADS];
+    }
+
+    private void increment(int counter) {
+        long[] current = counters.get();
+        if (current != null) {
+            current[counter]++;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package pl.setlikD.restapi.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Per-request Hibernate metrics. Request latency, repository timings, Hibernate statistics and
+ * the connection pool metrics are published by Spring Boot Actuator, see {@code application.properties}.
+ */
+@Configuration
+class MetricsConfiguration {
+
+    private final HibernateRequestCounters hibernateRequestCounters = new HibernateRequestCounters();
+
+    @Bean
+    HibernatePropertiesCustomizer hibernateRequestCountersCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, hibernateRequestCounters);
+            properties.put(AvailableSettings.INTERCEPTOR, hibernateRequestCounters);
+        };
+    }
+
+    @Bean
+    WebMvcConfigurer requestQueryMetricsConfigurer(MeterRegistry meterRegistry) {
+        RequestQueryMetricsInterceptor interceptor = new RequestQueryMetricsInterceptor(hibernateRequestCounters, meterRegistry);
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor).addPathPatterns("/api/**");
+            }
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package pl.setlikD.restapi.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records how many statements and entity loads every controller mapping costs per request.
+ * Asynchronous requests, such as the change feed, are not recorded: their work is spread over other threads,
+ * so counting stops when the handler hands the request over and the async dispatches are skipped.
+ */
+class RequestQueryMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+    private final HibernateRequestCounters counters;
+    private final MeterRegistry meterRegistry;
+
+    RequestQueryMetricsInterceptor(HibernateRequestCounters counters, MeterRegistry meterRegistry) {
+        this.counters = counters;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.ASYNC) {
+            counters.begin();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        counters.end();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        long[] current = counters.end();
+        if (current == null) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        summary("star.request.statements", "JDBC statements prepared per request", request, uri)
+                .record(HibernateRequestCounters.statements(current));
+        summary("star.request.entity.loads", "Entities loaded by Hibernate per request", request, uri)
+                .record(HibernateRequestCounters.entityLoads(current));
+    }
+
+    private DistributionSummary summary(String name, String description, HttpServletRequest request, String uri) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentiles(PERCENTILES)
+                .register(meterRegistry);
+    }
+}
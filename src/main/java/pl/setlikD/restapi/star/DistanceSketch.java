@@ -0,0 +1,111 @@
+package pl.setlikD.restapi.star;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A quantile sketch over long values with logarithmic buckets.
+ * <p>
+ * Every non-zero value is counted in the bucket {@code ceil(log_gamma(|value|))}, so any quantile is returned
+ * within the given relative accuracy. The number of buckets only depends on the range of the values, not on
+ * how many there are. Values can be removed as well as added, and two sketches of the same accuracy can be merged.
+ */
+class DistanceSketch {
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final NavigableMap<Integer, Long> positiveBuckets = new TreeMap<>();
+    private final NavigableMap<Integer, Long> negativeBuckets = new TreeMap<>();
+    private long zeroCount;
+    private long count;
+
+    DistanceSketch(double relativeAccuracy) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("The relative accuracy should be between 0 and 1");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    void add(long value) {
+        update(value, 1);
+    }
+
+    void remove(long value) {
+        update(value, -1);
+    }
+
+    void merge(DistanceSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Only sketches of the same relative accuracy can be merged");
+        }
+        other.positiveBuckets.forEach((index, bucketCount) -> positiveBuckets.merge(index, bucketCount, Long::sum));
+        other.negativeBuckets.forEach((index, bucketCount) -> negativeBuckets.merge(index, bucketCount, Long::sum));
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    void clear() {
+        positiveBuckets.clear();
+        negativeBuckets.clear();
+        zeroCount = 0;
+        count = 0;
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * @param quantile a number between 0 and 1
+     * @return value of the given quantile, within the relative accuracy of the sketch
+     */
+    long quantile(double quantile) {
+        if (count == 0) {
+            throw new IllegalStateException("The sketch is empty");
+        }
+        long rank = (long) (quantile * (count - 1));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> bucket : negativeBuckets.descendingMap().entrySet()) {
+            seen += bucket.getValue();
+            if (seen > rank) {
+                return -value(bucket.getKey());
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return 0;
+        }
+        for (Map.Entry<Integer, Long> bucket : positiveBuckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen > rank) {
+                return value(bucket.getKey());
+            }
+        }
+        return value(positiveBuckets.lastKey());
+    }
+
+    private void update(long value, long delta) {
+        if (value == 0) {
+            zeroCount += delta;
+        } else {
+            NavigableMap<Integer, Long> buckets = value > 0 ? positiveBuckets : negativeBuckets;
+            int index = index(Math.abs((double) value));
+            if (buckets.merge(index, delta, Long::sum) <= 0) {
+                buckets.remove(index);
+            }
+        }
+        count += delta;
+    }
+
+    private int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / logGamma);
+    }
+
+    private long value(int index) {
+        return Math.round(2 * Math.pow(gamma, index) / (gamma + 1));
+    }
+}
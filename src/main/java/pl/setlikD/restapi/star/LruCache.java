@@ -0,0 +1,152 @@
+package pl.setlikD.restapi.star;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A small thread-safe, size-bounded cache which evicts the least recently used entry first.
+ * Entries can optionally expire a fixed time after they were written.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the cached values
+ */
+class LruCache<K, V> {
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    LruCache(int maxSize) {
+        this(maxSize, Duration.ZERO);
+    }
+
+    /**
+     * @param maxSize maximum number of entries
+     * @param ttl     time to live of an entry, {@link Duration#ZERO} for entries which never expire
+     */
+    LruCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    LruCache(int maxSize, Duration ttl, LongSupplier nanoClock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The cache size should be greater than 0");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value, or null when it is absent or expired.
+     */
+    synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && isExpired(entry)) {
+            entries.remove(key);
+            evictions++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, ttlNanos > 0 ? nanoClock.getAsLong() + ttlNanos : 0));
+    }
+
+    /**
+     * Returns the cached value, computing and caching it first when absent.
+     * A loader which throws leaves the cache untouched.
+     */
+    synchronized V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size());
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return ttlNanos > 0 && nanoClock.getAsLong() - entry.expiresAt >= 0;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Snapshot of the cache counters.
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+
+        Stats(long hits, long misses, long evictions, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getSize() {
+            return size;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package pl.setlikD.restapi.star;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -16,10 +17,14 @@ import java.util.Objects;
 @Builder
 public class Star {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "star_seq")
+    @SequenceGenerator(name = "star_seq", sequenceName = "star_seq", allocationSize = 50)
     private Long id;
     private String name;
     private long distance;
+    @Version
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long version;
 
     public Star(String name, long distance) {
         this.name = name;
@@ -32,6 +37,13 @@ public class Star {
         this.distance = distance;
     }
 
+    public Star(Long id, String name, long distance, Long version) {
+        this.id = id;
+        this.name = name;
+        this.distance = distance;
+        this.version = version;
+    }
+
     public Star() {
 
     }
@@ -0,0 +1,45 @@
+package pl.setlikD.restapi.star;
+
+/**
+ * Outcome of a single {@link StarDto} of a batch insert.
+ */
+public class StarBatchResult {
+
+    public enum Status {
+        CREATED, DUPLICATE, INVALID
+    }
+
+    private final int index;
+    private final Status status;
+    private final Long id;
+
+    private StarBatchResult(int index, Status status, Long id) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+    }
+
+    static StarBatchResult created(int index, Long id) {
+        return new StarBatchResult(index, Status.CREATED, id);
+    }
+
+    static StarBatchResult duplicate(int index) {
+        return new StarBatchResult(index, Status.DUPLICATE, null);
+    }
+
+    static StarBatchResult invalid(int index) {
+        return new StarBatchResult(index, Status.INVALID, null);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
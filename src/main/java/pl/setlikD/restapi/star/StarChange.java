@@ -0,0 +1,82 @@
+package pl.setlikD.restapi.star;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A committed change of the catalog, published on {@code /stars/changes}.
+ * <p>
+ * {@code UPDATED} carries only the fields that changed, the others are left out. {@code RESYNC} means the change
+ * cannot be described per Star, or the events the client missed are no longer buffered: the client should read
+ * the catalog again.
+ * <p>
+ * The event id, {@code <epoch>-<sequence>}, names the run of the application as well: sequences restart on every run.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StarChange {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED, RESYNC
+    }
+
+    private final String epoch;
+    private final long sequence;
+    private final Type type;
+    private final Long id;
+    private final String name;
+    private final Long distance;
+
+    private StarChange(String epoch, long sequence, Type type, Long id, String name, Long distance) {
+        this.epoch = epoch;
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.distance = distance;
+    }
+
+    static StarChange created(Long id, String name, long distance) {
+        return new StarChange(null, 0, Type.CREATED, id, name, distance);
+    }
+
+    static StarChange updated(Long id, String name, Long distance) {
+        return new StarChange(null, 0, Type.UPDATED, id, name, distance);
+    }
+
+    static StarChange deleted(Long id) {
+        return new StarChange(null, 0, Type.DELETED, id, null, null);
+    }
+
+    static StarChange resync() {
+        return new StarChange(null, 0, Type.RESYNC, null, null, null);
+    }
+
+    StarChange withSequence(String epoch, long sequence) {
+        return new StarChange(epoch, sequence, type, id, name, distance);
+    }
+
+    @JsonIgnore
+    public String getEventId() {
+        return epoch + "-" + sequence;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getDistance() {
+        return distance;
+    }
+}
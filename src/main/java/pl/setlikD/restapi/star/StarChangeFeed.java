@@ -0,0 +1,211 @@
+package pl.setlikD.restapi.star;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fan-out of the committed {@link StarChange}s to the subscribers of {@code /stars/changes}.
+ * <p>
+ * Every change gets the next sequence number and is kept in a ring buffer of the last {@code bufferSize} changes,
+ * so a subscriber reconnecting with the last event id it received resumes where it left off. A subscriber that
+ * missed more than the buffer holds, or whose event id comes from another run of the application, gets a
+ * {@link StarChange.Type#RESYNC} first.
+ * <p>
+ * Each subscriber has its own bounded queue drained by its own sender thread, so publishing never waits on a
+ * client. A subscriber whose queue overflows is disconnected and has to reconnect, it cannot hold memory indefinitely.
+ */
+class StarChangeFeed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StarChangeFeed.class.getName());
+    private static final StarChange CANCELLED = StarChange.resync();
+
+    /**
+     * Writes the changes to one client, called from the sender thread of the subscription only.
+     */
+    interface Subscriber {
+
+        void send(StarChange change) throws IOException;
+
+        void heartbeat() throws IOException;
+
+        /**
+         * The subscription ended, because it was cancelled, it overflowed, or the feed was closed.
+         */
+        void complete();
+    }
+
+    /**
+     * Handle of a subscription, cancelling it stops its sender thread.
+     */
+    interface Subscription {
+
+        void cancel();
+    }
+
+    private final String epoch;
+    private final StarChange[] buffer;
+    private final int subscriberBufferSize;
+    private final long heartbeatNanos;
+    private final List<Sender> senders = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor;
+    private long nextSequence = 1;
+
+    /**
+     * @param epoch identifies this run of the application in the event ids
+     */
+    StarChangeFeed(String epoch, int bufferSize, int subscriberBufferSize, int maxSubscribers, Duration heartbeat) {
+        if (bufferSize < 1 || subscriberBufferSize < 1 || maxSubscribers < 1) {
+            throw new IllegalArgumentException("The buffer sizes and the maximum number of subscribers should be greater than 0");
+        }
+        this.epoch = epoch;
+        this.buffer = new StarChange[bufferSize];
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.heartbeatNanos = heartbeat.toNanos();
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(0, maxSubscribers, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "star-changes-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Numbers and buffers the changes, in order, and queues them for every subscriber.
+     */
+    synchronized void publish(Collection<StarChange> changes) {
+        for (StarChange change : changes) {
+            StarChange numbered = change.withSequence(epoch, nextSequence);
+            buffer[(int) (nextSequence % buffer.length)] = numbered;
+            nextSequence++;
+            senders.forEach(sender -> sender.offer(numbered));
+        }
+    }
+
+    void publish(StarChange change) {
+        publish(List.of(change));
+    }
+
+    /**
+     * Starts sending the changes published after {@code lastEventId} to the subscriber.
+     *
+     * @param lastEventId last event id the subscriber received, null to only get the changes published from now on
+     * @return the subscription, empty when the maximum number of subscribers is reached
+     */
+    synchronized Optional<Subscription> subscribe(String lastEventId, Subscriber subscriber) {
+        Sender sender = new Sender(subscriber);
+        if (lastEventId != null) {
+            long lastSequence = sequenceOf(lastEventId);
+            long latest = nextSequence - 1;
+            long oldest = Math.max(1, nextSequence - buffer.length);
+            // unknown ids, including those of another run, cannot be resumed from
+            if (lastSequence < 0 || lastSequence > latest || lastSequence < oldest - 1 || latest - lastSequence > subscriberBufferSize) {
+                sender.offer(StarChange.resync().withSequence(epoch, latest));
+            } else {
+                for (long sequence = lastSequence + 1; sequence < nextSequence; sequence++) {
+                    sender.offer(buffer[(int) (sequence % buffer.length)]);
+                }
+            }
+        }
+        try {
+            executor.execute(sender);
+        } catch (RejectedExecutionException e) {
+            return Optional.empty();
+        }
+        senders.add(sender);
+        return Optional.of(sender);
+    }
+
+    /**
+     * @return sequence of the event id, -1 when it is malformed or belongs to another epoch
+     */
+    private long sequenceOf(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !eventId.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    int getSubscriberCount() {
+        return senders.size();
+    }
+
+    /**
+     * Completes every subscription and stops the sender threads.
+     */
+    void close() {
+        senders.forEach(Sender::cancel);
+        executor.shutdown();
+    }
+
+    private class Sender implements Runnable, Subscription {
+
+        private final Subscriber subscriber;
+        private final BlockingQueue<StarChange> queue = new ArrayBlockingQueue<>(subscriberBufferSize);
+        private volatile boolean done;
+
+        Sender(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(StarChange change) {
+            if (!done && !queue.offer(change)) {
+                LOGGER.info("Disconnecting a slow change feed subscriber, " + subscriberBufferSize + " changes pending");
+                cancel();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            senders.remove(this);
+            // wake the sender thread up now, not at the next heartbeat
+            queue.clear();
+            queue.offer(CANCELLED);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!done) {
+                    StarChange change = queue.poll(heartbeatNanos, TimeUnit.NANOSECONDS);
+                    if (done || change == CANCELLED) {
+                        break;
+                    }
+                    if (change == null) {
+                        subscriber.heartbeat();
+                    } else {
+                        subscriber.send(change);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.debug("Change feed subscriber gone:" + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                cancel();
+                subscriber.complete();
+            }
+        }
+    }
+}
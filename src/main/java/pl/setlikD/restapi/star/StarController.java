@@ -1,35 +1,130 @@
 package pl.setlikD.restapi.star;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import pl.setlikD.restapi.admission.AdmissionControlled;
 
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1")
 class StarController {
 
     public static final Long EMPTY_ID = null;
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String EXPORT_ENDPOINTS = "export";
+    static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    private static final long NO_TIMEOUT = 0L;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
     private final StarService starService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    StarController(StarService starService) {
+    StarController(StarService starService, ObjectMapper objectMapper) {
         this.starService = starService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/stars")
-    public List<Star> getStars() {
-        return starService.getAllStarts();
+    public ResponseEntity<List<Star>> getStars(@RequestParam(value = "limit", required = false) Integer limit,
+                                               @RequestParam(value = "after", required = false) Long after,
+                                               WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        if (limit == null && after == null) {
+            return ResponseEntity.ok(starService.getAllStarts());
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<Star> stars = starService.getStarsPage(after, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!stars.isEmpty() && stars.size() == Math.min(pageSize, StarService.MAX_PAGE_SIZE)) {
+            String nextCursor = String.valueOf(stars.get(stars.size() - 1).getId());
+            String nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", nextCursor)
+                    .build().toUriString();
+            response.header(NEXT_CURSOR_HEADER, nextCursor)
+                    .header(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+        }
+        return response.body(stars);
+    }
+
+    @GetMapping(value = "/stars/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @AdmissionControlled(StarController.EXPORT_ENDPOINTS)
+    public void exportStars(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            long[] written = {0};
+            starService.exportStars(star -> {
+                try {
+                    generator.writeObject(star);
+                    generator.writeRaw('\n');
+                    if (written[0]++ % EXPORT_FLUSH_INTERVAL == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Streams the committed changes as server-sent events named after the change type, with {@code <epoch>-<sequence>} as event id.
+     * A client reconnecting with {@code Last-Event-ID} gets the changes it missed, or a {@code RESYNC} event.
+     */
+    @GetMapping(value = "/stars/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+        SseEmitter emitter = new SseEmitter(NO_TIMEOUT);
+        StarChangeFeed.Subscription subscription = starService.subscribeToChanges(lastEventId, new StarChangeFeed.Subscriber() {
+            @Override
+            public void send(StarChange change) throws IOException {
+                emitter.send(SseEmitter.event()
+                        .id(change.getEventId())
+                        .name(change.getType().name())
+                        .data(change, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void heartbeat() throws IOException {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+
+            @Override
+            public void complete() {
+                emitter.complete();
+            }
+        }).orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many change feed subscribers"));
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
     }
 
     @GetMapping("/stars/{id}")
     public ResponseEntity<Star> getStarById(@PathVariable("id") Long id) {
-        return starService.getStarById(id).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+        return starService.getStarById(id).map(star -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (star.getVersion() != null) {
+                response.eTag(String.valueOf(star.getVersion()));
+            }
+            return response.body(star);
+        }).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @PostMapping("/stars")
@@ -38,40 +133,181 @@ class StarController {
         return starService.createStar(new Star(EMPTY_ID, starDto.getName(), starDto.getDistance()));
     }
 
+    @PostMapping("/stars/batch")
+    public List<StarBatchResult> createStars(@RequestBody List<StarDto> starDtos) {
+        try {
+            return starService.createStars(starDtos);
+        } catch (ResourceNotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
     @PutMapping("/stars/{id}")
     public ResponseEntity<Star> updateStar(@PathVariable("id") Long id, @RequestBody StarDto starDto) {
-        return starService.getStarById(id).map(savedStar -> {
-            savedStar.setName(starDto.getName());
-            savedStar.setDistance(starDto.getDistance());
-            Star updatedStar = starService.updateStar(savedStar);
-            return new ResponseEntity<>(updatedStar, HttpStatus.OK);
-
-        }).orElseGet(() -> ResponseEntity.notFound().build());
+        return starService.updateStar(id, starDto).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    }
 
+    @PatchMapping("/stars/{id}")
+    public ResponseEntity<Void> patchStar(@PathVariable("id") Long id, @RequestBody StarPatchDto starPatchDto,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (starPatchDto.getName() == null && starPatchDto.getDistance() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nothing to update");
+        }
+        Long expectedVersion = parseVersion(ifMatch);
+        switch (starService.patchStar(id, starPatchDto, expectedVersion)) {
+            case UPDATED:
+                ResponseEntity.HeadersBuilder<?> response = ResponseEntity.noContent();
+                if (expectedVersion != null) {
+                    response.eTag(String.valueOf(expectedVersion + 1));
+                }
+                return response.build();
+            case VERSION_CONFLICT:
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            default:
+                return ResponseEntity.notFound().build();
+        }
     }
 
     @DeleteMapping("/stars/{id}")
     public ResponseEntity<String> deleteStar(@PathVariable("id") Long id) {
-        Optional<Star> star = Optional.ofNullable(starService.getStarById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
-        starService.deleteStar(star.get().getId());
+        if (!starService.deleteStar(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
         return new ResponseEntity<>("Star deleted successfully!.", HttpStatus.OK);
     }
 
+    @DeleteMapping("/stars")
+    public ResponseEntity<String> deleteStars(@RequestParam(value = "ids", required = false) List<Long> ids,
+                                              @RequestParam(value = "minDistance", required = false) Long minDistance,
+                                              @RequestParam(value = "maxDistance", required = false) Long maxDistance) {
+        boolean byDistance = minDistance != null || maxDistance != null;
+        if ((ids == null) == !byDistance) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Either ids or a distance range should be given");
+        }
+        int deleted = byDistance
+                ? starService.deleteStarsByDistance(minDistance == null ? Long.MIN_VALUE : minDistance, maxDistance == null ? Long.MAX_VALUE : maxDistance)
+                : starService.deleteStars(ids);
+        return new ResponseEntity<>(String.format("%d stars deleted successfully!.", deleted), HttpStatus.OK);
+    }
+
     @GetMapping("/stars/unique")
-    public boolean areNamesUnique() throws IOException {
-        return starService.areNamesUnique(starService.getAllStarts());
+    @AdmissionControlled
+    public Boolean areNamesUnique(WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return starService.areNamesUnique();
+    }
+
+    @GetMapping("/stars/cache/stats")
+    public LruCache.Stats getCacheStats() {
+        return starService.getCacheStats();
+    }
+
+    @GetMapping("/stars/stats")
+    public StarStats getDistanceStats(WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return starService.getDistanceStats();
+    }
+
+    @GetMapping("/stars/duplicates")
+    @AdmissionControlled
+    public List<String> findDuplicateNames(WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return starService.findDuplicateNames();
     }
 
     @GetMapping("/stars/closest/{size}")
-    public List<Star> findClosestStars(@PathVariable("size") int size) throws IOException {
-        return starService.findClosestStars(starService.getAllStarts(), size);
+    @AdmissionControlled
+    public List<Star> findClosestStars(@PathVariable("size") int size, WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return starService.findClosestStars(size);
+    }
+
+    @GetMapping("/stars/near")
+    public List<Star> findNearestStars(@RequestParam("distance") long distance,
+                                       @RequestParam(value = "k", defaultValue = "10") int k,
+                                       WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return starService.findNearestStars(distance, k);
+    }
+
+    @GetMapping("/stars/range")
+    public List<Star> findStarsInRange(@RequestParam(value = "min", required = false) Long min,
+                                       @RequestParam(value = "max", required = false) Long max,
+                                       @RequestParam(value = "limit", required = false) Integer limit,
+                                       WebRequest request) {
+        long minDistance = min == null ? Long.MIN_VALUE : min;
+        long maxDistance = max == null ? Long.MAX_VALUE : max;
+        if (minDistance > maxDistance) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The min should not be greater than the max");
+        }
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return starService.findStarsInRange(minDistance, maxDistance, limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    @GetMapping("/stars/search")
+    public List<Star> searchStars(@RequestParam(value = "prefix", required = false) String prefix,
+                                  @RequestParam(value = "contains", required = false) String contains,
+                                  @RequestParam(value = "limit", defaultValue = "10") int limit,
+                                  WebRequest request) {
+        if ((prefix == null || prefix.isEmpty()) && (contains == null || contains.isEmpty())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Either prefix or contains should be given");
+        }
+        // shorter substrings have no trigram to look up, they would scan every name
+        if ((prefix == null || prefix.isEmpty()) && contains.length() < StarNameIndex.GRAM_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Without prefix, contains should have at least " + StarNameIndex.GRAM_LENGTH + " characters");
+        }
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return starService.searchByName(prefix, contains, limit);
     }
 
     @GetMapping("/stars/regex")
-    public List<Star> filterByRegExpr(@RequestParam("regex") String regex) {
+    @AdmissionControlled
+    public List<Star> filterByRegExpr(@RequestParam("regex") String regex, WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
         String replaceRegex = regex.replaceAll(" ", "+");
-        return starService.filterByRegExpr(starService.getAllStarts(), replaceRegex);
+        return starService.filterByRegExpr(replaceRegex);
     }
 
+    /**
+     * Checks the catalog version against {@code If-None-Match}. The entity tag is weak: the same version is served as
+     * JSON, CBOR or Smile, possibly compressed, and Tomcat does not compress responses carrying a strong one.
+     */
+    private boolean catalogNotModified(WebRequest request) {
+        return request.checkNotModified("W/\"" + starService.getCatalogVersion() + "\"");
+    }
 
+    /**
+     * Reads the Star version out of an {@code If-Match} entity tag, null when any version is accepted.
+     */
+    private static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        try {
+            return Long.valueOf(tag.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match should carry the Star version");
+        }
+    }
 }
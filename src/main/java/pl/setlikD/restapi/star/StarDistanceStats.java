@@ -0,0 +1,126 @@
+package pl.setlikD.restapi.star;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Running aggregates of the {@link Star} distances: count, sum, exact min/max and a {@link DistanceSketch}.
+ * <p>
+ * Like {@link StarNameIndex}, it is keyed by star id and every mutation is idempotent. The {@link StarStats}
+ * answer is computed once per change, so reading it costs the same whatever the catalog size.
+ */
+class StarDistanceStats {
+
+    static final double RELATIVE_ACCURACY = 0.01;
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.95, 0.99, 0.999};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p95", "p99", "p999"};
+    private static final int PARALLEL_BUILD_THRESHOLD = 10_000;
+
+    private final Map<Long, Long> distancesById = new HashMap<>();
+    private final NavigableMap<Long, Integer> distanceCounts = new TreeMap<>();
+    private final DistanceSketch sketch = new DistanceSketch(RELATIVE_ACCURACY);
+    private long sum;
+    private boolean built;
+    private StarStats snapshot;
+
+    /**
+     * Replaces the content with the given Stars. The sketch of a large catalog is built in parallel,
+     * one partial sketch per chunk, merged together.
+     */
+    synchronized void rebuild(Collection<Star> stars) {
+        distancesById.clear();
+        distanceCounts.clear();
+        sum = 0;
+        for (Star star : stars) {
+            Long previous = distancesById.put(star.getId(), star.getDistance());
+            if (previous != null) {
+                removeCount(previous);
+                sum -= previous;
+            }
+            distanceCounts.merge(star.getDistance(), 1, Integer::sum);
+            sum += star.getDistance();
+        }
+        Stream<Long> distances = distancesById.size() >= PARALLEL_BUILD_THRESHOLD
+                ? distancesById.values().parallelStream()
+                : distancesById.values().stream();
+        sketch.clear();
+        sketch.merge(distances.collect(() -> new DistanceSketch(RELATIVE_ACCURACY), DistanceSketch::add, DistanceSketch::merge));
+        built = true;
+        snapshot = null;
+    }
+
+    /**
+     * Marks the statistics as outdated, they are rebuilt before their next use.
+     */
+    synchronized void invalidate() {
+        built = false;
+        snapshot = null;
+    }
+
+    synchronized boolean isBuilt() {
+        return built;
+    }
+
+    synchronized void put(Long id, long distance) {
+        if (built) {
+            add(id, distance);
+            snapshot = null;
+        }
+    }
+
+    synchronized void remove(Long id) {
+        if (built) {
+            Long distance = distancesById.remove(id);
+            if (distance != null) {
+                removeDistance(distance);
+                snapshot = null;
+            }
+        }
+    }
+
+    synchronized StarStats snapshot() {
+        if (snapshot == null) {
+            snapshot = computeSnapshot();
+        }
+        return snapshot;
+    }
+
+    private StarStats computeSnapshot() {
+        long count = distancesById.size();
+        if (count == 0) {
+            return new StarStats(0, null, null, null, Collections.emptyMap());
+        }
+        long min = distanceCounts.firstKey();
+        long max = distanceCounts.lastKey();
+        Map<String, Long> percentiles = new LinkedHashMap<>();
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            percentiles.put(PERCENTILE_NAMES[i], Math.max(min, Math.min(max, sketch.quantile(PERCENTILES[i]))));
+        }
+        return new StarStats(count, min, max, (double) sum / count, Collections.unmodifiableMap(percentiles));
+    }
+
+    private void add(Long id, long distance) {
+        Long previous = distancesById.put(id, distance);
+        if (previous != null) {
+            if (previous == distance) {
+                return;
+            }
+            removeDistance(previous);
+        }
+        distanceCounts.merge(distance, 1, Integer::sum);
+        sketch.add(distance);
+        sum += distance;
+    }
+
+    private void removeDistance(long distance) {
+        removeCount(distance);
+        sketch.remove(distance);
+        sum -= distance;
+    }
+
+    private void removeCount(long distance) {
+        if (distanceCounts.merge(distance, -1, Integer::sum) <= 0) {
+            distanceCounts.remove(distance);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package pl.setlikD.restapi.star;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link Star} field by field instead of through reflective bean introspection.
+ * Field names are encoded once, and only the four columns are read, so the entity graph is never walked.
+ * The output matches the default mapping: {@code id}, {@code name} and {@code distance} are always written, in that order,
+ * {@code version} only when set.
+ * It is registered with Spring Boot's ObjectMapper, so it applies to JSON, NDJSON, CBOR and Smile alike.
+ */
+@JsonComponent
+class StarJsonSerializer extends JsonSerializer<Star> {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString DISTANCE = new SerializedString("distance");
+    private static final SerializableString VERSION = new SerializedString("version");
+
+    @Override
+    public void serialize(Star star, JsonGenerator generator, SerializerProvider serializers) throws IOException {
+        generator.writeStartObject(star);
+        generator.writeFieldName(ID);
+        if (star.getId() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(star.getId());
+        }
+        generator.writeFieldName(NAME);
+        generator.writeString(star.getName());
+        generator.writeFieldName(DISTANCE);
+        generator.writeNumber(star.getDistance());
+        if (star.getVersion() != null) {
+            generator.writeFieldName(VERSION);
+            generator.writeNumber(star.getVersion());
+        }
+        generator.writeEndObject();
+    }
+
+    @Override
+    public Class<Star> handledType() {
+        return Star.class;
+    }
+}
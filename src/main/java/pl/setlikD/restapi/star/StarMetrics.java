@@ -0,0 +1,36 @@
+package pl.setlikD.restapi.star;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the {@link StarService} cache counters next to the other application metrics.
+ */
+@Component
+class StarMetrics implements MeterBinder {
+
+    private final StarService starService;
+
+    StarMetrics(StarService starService) {
+        this.starService = starService;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("star.cache.hits", starService, s -> s.getCacheStats().getHits())
+                .description("getStarById calls served from the cache")
+                .register(registry);
+        FunctionCounter.builder("star.cache.misses", starService, s -> s.getCacheStats().getMisses())
+                .description("getStarById calls which went to the database")
+                .register(registry);
+        FunctionCounter.builder("star.cache.evictions", starService, s -> s.getCacheStats().getEvictions())
+                .description("Stars dropped from the cache because of its size or time to live")
+                .register(registry);
+        Gauge.builder("star.cache.size", starService, s -> s.getCacheStats().getSize())
+                .description("Stars currently cached")
+                .register(registry);
+    }
+}
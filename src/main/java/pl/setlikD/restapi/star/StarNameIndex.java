@@ -0,0 +1,179 @@
+package pl.setlikD.restapi.star;
+
+import java.util.*;
+
+/**
+ * An in-memory occupancy and search index of {@link Star} names.
+ * <p>
+ * The index is keyed by star id and plain name strings only, so it does not depend on
+ * {@link Star#equals(Object)} / {@link Star#hashCode()}. Every mutation is idempotent, which
+ * lets the service replay a change that a concurrent rebuild has already picked up.
+ * <p>
+ * Names are kept sorted, so a prefix search is a range scan, and every distinct name is posted
+ * under each of its trigrams, so a substring search only visits names sharing all trigrams of the query.
+ */
+class StarNameIndex {
+
+    static final int GRAM_LENGTH = 3;
+
+    private final Map<Long, String> namesById = new HashMap<>();
+    private final NavigableMap<String, SortedSet<Long>> idsByName = new TreeMap<>();
+    private final Map<String, SortedSet<String>> namesByTrigram = new HashMap<>();
+    private final Set<String> duplicateNames = new HashSet<>();
+    private boolean built;
+
+    synchronized void rebuild(Collection<Star> stars) {
+        namesById.clear();
+        idsByName.clear();
+        namesByTrigram.clear();
+        duplicateNames.clear();
+        for (Star star : stars) {
+            add(star.getId(), star.getName());
+        }
+        built = true;
+    }
+
+    /**
+     * Marks the index content as outdated, it is rebuilt before its next use.
+     */
+    synchronized void invalidate() {
+        built = false;
+    }
+
+    synchronized boolean isBuilt() {
+        return built;
+    }
+
+    synchronized void put(Long id, String name) {
+        if (built) {
+            add(id, name);
+        }
+    }
+
+    synchronized void remove(Long id) {
+        if (built) {
+            String name = namesById.remove(id);
+            if (name != null) {
+                removeId(name, id);
+            }
+        }
+    }
+
+    synchronized boolean isUnique() {
+        return duplicateNames.isEmpty();
+    }
+
+    synchronized List<String> duplicates() {
+        List<String> names = new ArrayList<>(duplicateNames);
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Returns the ids of the Stars whose name starts with the prefix and contains the substring,
+     * ordered by name and then by id. A substring shorter than {@value #GRAM_LENGTH} characters is matched
+     * by scanning the names starting with the prefix, all of them when there is no prefix.
+     *
+     * @param prefix    required start of the name, null or empty for any
+     * @param substring required part of the name, null or empty for any
+     * @param limit     maximum number of ids to return
+     * @return ids of the matching Stars
+     */
+    synchronized List<Long> search(String prefix, String substring, int limit) {
+        String start = prefix == null ? "" : prefix;
+        String part = substring == null ? "" : substring;
+        Iterable<String> candidates = part.length() >= GRAM_LENGTH ? trigramCandidates(part) : prefixRange(start);
+        List<Long> ids = new ArrayList<>(Math.min(limit, 64));
+        for (String name : candidates) {
+            if (name.startsWith(start) && name.contains(part)) {
+                for (Long id : idsByName.get(name)) {
+                    ids.add(id);
+                    if (ids.size() == limit) {
+                        return ids;
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    private Iterable<String> prefixRange(String prefix) {
+        if (prefix.isEmpty()) {
+            return idsByName.keySet();
+        }
+        return idsByName.subMap(prefix, true, prefix + Character.MAX_VALUE, false).keySet();
+    }
+
+    /**
+     * Walks the shortest posting list of the substring's trigrams, keeping the names posted under all of them.
+     */
+    private Iterable<String> trigramCandidates(String substring) {
+        List<SortedSet<String>> postings = new ArrayList<>();
+        for (String trigram : trigrams(substring)) {
+            SortedSet<String> names = namesByTrigram.get(trigram);
+            if (names == null) {
+                return Collections.emptyList();
+            }
+            postings.add(names);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        SortedSet<String> shortest = postings.get(0);
+        List<SortedSet<String>> others = postings.subList(1, postings.size());
+        return () -> shortest.stream()
+                .filter(name -> others.stream().allMatch(names -> names.contains(name)))
+                .iterator();
+    }
+
+    private void add(Long id, String name) {
+        String previous = namesById.put(id, name);
+        if (name.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            removeId(previous, id);
+        }
+        SortedSet<Long> ids = idsByName.get(name);
+        if (ids == null) {
+            ids = new TreeSet<>();
+            idsByName.put(name, ids);
+            for (String trigram : trigrams(name)) {
+                namesByTrigram.computeIfAbsent(trigram, t -> new TreeSet<>()).add(name);
+            }
+        }
+        ids.add(id);
+        if (ids.size() > 1) {
+            duplicateNames.add(name);
+        }
+    }
+
+    private void removeId(String name, Long id) {
+        SortedSet<Long> ids = idsByName.get(name);
+        if (ids == null) {
+            return;
+        }
+        ids.remove(id);
+        if (ids.size() <= 1) {
+            duplicateNames.remove(name);
+        }
+        if (ids.isEmpty()) {
+            idsByName.remove(name);
+            for (String trigram : trigrams(name)) {
+                SortedSet<String> names = namesByTrigram.get(trigram);
+                if (names != null) {
+                    names.remove(name);
+                    if (names.isEmpty()) {
+                        namesByTrigram.remove(trigram);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return trigrams;
+    }
+}
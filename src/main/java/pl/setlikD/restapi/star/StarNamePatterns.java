@@ -0,0 +1,57 @@
+package pl.setlikD.restapi.star;
+
+import java.util.regex.Pattern;
+
+/**
+ * Compiles and caches the regular expressions used to filter {@link Star} names.
+ */
+class StarNamePatterns {
+
+    private static final String META_CHARACTERS = "\\.[]{}()*+?^$|";
+    private final LruCache<String, Pattern> patterns;
+
+    StarNamePatterns(int cacheSize) {
+        this.patterns = new LruCache<>(cacheSize);
+    }
+
+    Pattern compile(String regExpr) {
+        return patterns.computeIfAbsent(regExpr, Pattern::compile);
+    }
+
+    /**
+     * Returns the literal text every name matching the whole expression has to start with.
+     * The result is conservative: an empty prefix means the expression can match anything.
+     *
+     * @param regExpr regular expression to match stars' names
+     * @return literal prefix of the expression, possibly empty
+     */
+    static String literalPrefix(String regExpr) {
+        if (regExpr.indexOf('|') >= 0) {
+            return "";
+        }
+        StringBuilder prefix = new StringBuilder();
+        int i = regExpr.startsWith("^") ? 1 : 0;
+        while (i < regExpr.length()) {
+            char c = regExpr.charAt(i);
+            int next = i + 1;
+            if (c == '\\') {
+                if (next >= regExpr.length() || Character.isLetterOrDigit(regExpr.charAt(next))) {
+                    break;
+                }
+                c = regExpr.charAt(next++);
+            } else if (META_CHARACTERS.indexOf(c) >= 0) {
+                break;
+            }
+            if (next < regExpr.length() && isOptionalQuantifier(regExpr.charAt(next))) {
+                break;
+            }
+            prefix.append(c);
+            i = next;
+        }
+        return prefix.toString();
+    }
+
+    private static boolean isOptionalQuantifier(char c) {
+        return c == '?' || c == '*' || c == '{';
+    }
+}
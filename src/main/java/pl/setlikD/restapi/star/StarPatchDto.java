@@ -0,0 +1,22 @@
+package pl.setlikD.restapi.star;
+
+/**
+ * Partial update of a {@link Star}, fields left null keep their current value.
+ */
+public class StarPatchDto {
+    private final String name;
+    private final Long distance;
+
+    public StarPatchDto(String name, Long distance) {
+        this.name = name;
+        this.distance = distance;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getDistance() {
+        return distance;
+    }
+}
@@ -0,0 +1,92 @@
+package pl.setlikD.restapi.star;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Tuning of the {@link StarService} in-memory structures, bound from the {@code star.*} properties.
+ */
+@Component
+@ConfigurationProperties("star")
+@Getter
+class StarProperties {
+
+    private final Cache cache = new Cache();
+    private final Index index = new Index();
+    private final Changes changes = new Changes();
+    private final Snapshot snapshot = new Snapshot();
+
+    @Getter
+    @Setter
+    static class Cache {
+        /**
+         * Maximum number of Stars kept by the {@code getStarById} cache.
+         */
+        private int maxSize = 10_000;
+        /**
+         * How long a cached Star is served before it is read from the database again.
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+
+    @Getter
+    @Setter
+    static class Index {
+        /**
+         * How often the name index and the distance statistics are reloaded from the database to correct drift.
+         */
+        private Duration rebuildInterval = Duration.ofMinutes(5);
+    }
+
+    @Getter
+    @Setter
+    static class Changes {
+        /**
+         * Number of the last changes kept for the subscribers of {@code /stars/changes} resuming with {@code Last-Event-ID}.
+         */
+        private int bufferSize = 1024;
+        /**
+         * Number of changes queued for one subscriber before it is disconnected as too slow.
+         */
+        private int subscriberBufferSize = 256;
+        /**
+         * Maximum number of subscribers connected at the same time.
+         */
+        private int maxSubscribers = 100;
+        /**
+         * How often an idle subscriber gets a comment line, so a closed connection is noticed.
+         */
+        private Duration heartbeat = Duration.ofSeconds(15);
+    }
+
+    @Getter
+    @Setter
+    static class Snapshot {
+        /**
+         * Whether the catalog is periodically written to a {@link StarSnapshot} file and restored from it on startup.
+         */
+        private boolean enabled;
+        /**
+         * Location of the snapshot file.
+         */
+        private Path path = Paths.get("target/snapshot/stars.snap");
+        /**
+         * How often the snapshot is rewritten, a run writes nothing when the catalog has not changed.
+         */
+        private Duration interval = Duration.ofMinutes(5);
+        /**
+         * Whether the database and the indexes are restored from the snapshot file on startup, when it exists.
+         */
+        private boolean loadOnStartup = true;
+        /**
+         * Whether a last snapshot is written when the application stops.
+         */
+        private boolean writeOnShutdown = true;
+    }
+}
@@ -1,11 +1,102 @@
 package pl.setlikD.restapi.star;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface StarRepository extends JpaRepository<Star, Long> {
-    @Query("select s from Star s where s.name = ?1 and s.distance = ?2")
-    Optional<Star> findByNameAndDistance(String name, long distance);
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface StarRepository extends JpaRepository<Star, Long>, StarRepositoryCustom {
+
+    /**
+     * Selects the Stars through a constructor expression: the returned {@link Star} objects are plain values,
+     * never registered in the persistence context nor snapshotted for dirty checking. Only for reads, a change
+     * made to them is not persisted. They are Stars rather than a separate projection type because the responses,
+     * the in-memory indexes and the snapshot all take Stars, a projection would be copied into a Star per row.
+     */
+    String SELECT_STAR_VALUES = "select new pl.setlikD.restapi.star.Star(s.id, s.name, s.distance, s.version) from Star s";
+
+    @Query(SELECT_STAR_VALUES + " order by s.distance")
+    List<Star> findClosest(Pageable pageable);
+
+    @Query(SELECT_STAR_VALUES + " where s.distance >= ?1 order by s.distance, s.id")
+    List<Star> findFromDistanceUp(long distance, Pageable pageable);
+
+    @Query(SELECT_STAR_VALUES + " where s.distance < ?1 order by s.distance desc, s.id desc")
+    List<Star> findBelowDistanceDown(long distance, Pageable pageable);
+
+    @Query(SELECT_STAR_VALUES + " where s.distance between ?1 and ?2 order by s.distance, s.id")
+    List<Star> findByDistanceBetween(long minDistance, long maxDistance, Pageable pageable);
+
+    @Query(SELECT_STAR_VALUES)
+    List<Star> findAllValues();
+
+    /**
+     * Reads all stars in a new read-write transaction, so with read replicas the primary serves it:
+     * the in-memory indexes must not be built from a lagging copy.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(SELECT_STAR_VALUES)
+    List<Star> findAllValuesFromPrimary();
+
+    @Query(SELECT_STAR_VALUES + " where s.id in ?1")
+    List<Star> findValuesByIds(Collection<Long> ids);
+
+    /**
+     * @param pattern {@code like} pattern, with {@code \} escaping the wildcards
+     */
+    @Query(SELECT_STAR_VALUES + " where s.name like ?1 escape '\\'")
+    List<Star> findValuesByNameLike(String pattern);
+
+    List<Star> findByNameIn(Collection<String> names);
+
+    @Query(SELECT_STAR_VALUES + " where s.id > ?1 order by s.id")
+    List<Star> findPageAfter(long afterId, Pageable pageable);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Star s set s.name = ?2, s.distance = ?3, s.version = s.version + 1 where s.id = ?1")
+    int updateNameAndDistance(long id, String name, long distance);
+
+    @Query("select s.version from Star s where s.id = ?1")
+    Optional<Long> findVersionById(long id);
+
+    /**
+     * Updates the given fields, null ones are left untouched, only if the version still matches.
+     *
+     * @param expectedVersion required current version, null to update any version
+     * @return number of updated rows
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Star s set s.name = coalesce(?2, s.name), s.distance = coalesce(?3, s.distance), s.version = s.version + 1 " +
+            "where s.id = ?1 and (?4 is null or s.version = ?4)")
+    int patch(long id, String name, Long distance, Long expectedVersion);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Star s where s.id = ?1")
+    int deleteStarById(long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Star s where s.id in ?1")
+    int deleteStarsByIds(Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Star s where s.distance between ?1 and ?2")
+    int deleteStarsByDistance(long minDistance, long maxDistance);
+
+    /**
+     * Streams all stars ordered by id, has to be consumed and closed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_STAR_VALUES + " order by s.id")
+    Stream<Star> streamAll();
 
 }
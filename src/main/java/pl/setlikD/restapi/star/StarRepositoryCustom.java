@@ -0,0 +1,12 @@
+package pl.setlikD.restapi.star;
+
+/**
+ * Repository operations which need direct access to the persistence context.
+ */
+interface StarRepositoryCustom {
+
+    /**
+     * Sends the pending statements as JDBC batches and empties the persistence context.
+     */
+    void flushAndClear();
+}
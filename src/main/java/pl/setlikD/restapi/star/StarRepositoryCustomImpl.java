@@ -0,0 +1,16 @@
+package pl.setlikD.restapi.star;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+class StarRepositoryCustomImpl implements StarRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -1,14 +1,29 @@
 package pl.setlikD.restapi.star;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A class to work with {@link Star} collections.
@@ -17,46 +32,477 @@ import java.util.stream.Collectors;
 class StarService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(StarService.class.getName());
+    private static final Comparator<Star> BY_DISTANCE = Comparator.comparingLong(Star::getDistance);
+    private static final int PATTERN_CACHE_SIZE = 256;
+    private static final int PARALLEL_MATCH_THRESHOLD = 10_000;
+    static final int MAX_PAGE_SIZE = 1000;
+    private static final int BATCH_CHUNK_SIZE = 1000;
+    private static final int INDEX_BUILD_ATTEMPTS = 3;
+    private static final String NAME_DISTANCE_CONSTRAINT = "star_name_distance_uq";
     private final StarRepository starRepository;
+    private final StarNameIndex nameIndex = new StarNameIndex();
+    private final StarDistanceStats distanceStats = new StarDistanceStats();
+    private final Object indexLock = new Object();
+    private final StarNamePatterns namePatterns = new StarNamePatterns(PATTERN_CACHE_SIZE);
+    private final LruCache<Long, Star> starCache;
+    private final StarChangeFeed changeFeed;
+    private final String catalogEpoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong catalogVersion = new AtomicLong();
 
     @Autowired
-    public StarService(StarRepository starRepository) {
+    public StarService(StarRepository starRepository, StarProperties properties) {
         this.starRepository = starRepository;
+        this.starCache = new LruCache<>(properties.getCache().getMaxSize(), properties.getCache().getTtl());
+        StarProperties.Changes changes = properties.getChanges();
+        this.changeFeed = new StarChangeFeed(catalogEpoch, changes.getBufferSize(), changes.getSubscriberBufferSize(),
+                changes.getMaxSubscribers(), changes.getHeartbeat());
     }
 
+    @Transactional(readOnly = true)
     public List<Star> getAllStarts() {
         LOGGER.debug("Get all stars");
-        return starRepository.findAll();
+        return starRepository.findAllValues();
     }
 
+    /**
+     * Passes every persisted Star to the writer, one row at a time.
+     * The Stars are read as values, never kept by the persistence context, so memory use does not depend on the catalog size.
+     *
+     * @param writer consumer of the streamed {@link Star} objects
+     * @return number of exported Stars
+     */
+    @Transactional(readOnly = true)
+    public long exportStars(Consumer<Star> writer) {
+        LOGGER.info("Exporting all stars");
+        long exported = 0;
+        try (Stream<Star> stars = starRepository.streamAll()) {
+            Iterator<Star> iterator = stars.iterator();
+            while (iterator.hasNext()) {
+                writer.accept(iterator.next());
+                exported++;
+            }
+        }
+        LOGGER.debug("Exported stars:" + exported);
+        return exported;
+    }
+
+    /**
+     * Returns one page of Stars ordered by id, using keyset pagination so deep pages cost the same as the first one.
+     *
+     * @param after id of the last Star of the previous page, null for the first page
+     * @param limit maximum number of Stars to return, capped at {@value #MAX_PAGE_SIZE}
+     * @return collection of {@link Star} objects with ids greater than {@code after}
+     */
+    @Transactional(readOnly = true)
+    public List<Star> getStarsPage(Long after, int limit) {
+        LOGGER.debug("Get stars page after id:" + after + " limit:" + limit);
+        sizeValidator(limit);
+        long afterId = after == null ? Long.MIN_VALUE : after;
+        return starRepository.findPageAfter(afterId, PageRequest.of(0, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    /**
+     * Returns the Star with the given id, reading through a size-bounded cache with time to live.
+     * Cached Stars are handed out as copies, so callers modifying them cannot corrupt the cache.
+     * A Star read while a change committed is not cached, it may predate the invalidation of that change.
+     */
     public Optional<Star> getStarById(Long id) {
         LOGGER.debug("Get Star by id:" + id);
-        return starRepository.findById(id);
+        Star cachedStar = starCache.get(id);
+        if (cachedStar != null) {
+            return Optional.of(copyOf(cachedStar));
+        }
+        long version = catalogVersion.get();
+        Optional<Star> star = starRepository.findById(id);
+        star.ifPresent(s -> {
+            synchronized (indexLock) {
+                if (catalogVersion.get() == version) {
+                    starCache.put(id, copyOf(s));
+                }
+            }
+        });
+        return star;
+    }
+
+    /**
+     * Returns a token which changes after every committed modification of the Stars.
+     * It also differs between two runs of the application, so it can be used as a strong entity tag.
+     */
+    public String getCatalogVersion() {
+        return catalogEpoch + "-" + catalogVersion.get();
+    }
+
+    public LruCache.Stats getCacheStats() {
+        return starCache.stats();
     }
 
     @Transactional
     public Star createStar(Star star) {
         LOGGER.info("Creating Star");
         LOGGER.debug("Model Star:" + star);
-        Optional<Star> savedEmployee = starRepository.findByNameAndDistance(star.getName(), star.getDistance());
-        if (savedEmployee.isPresent()) {
-            throw new ResourceNotFoundException(String.format("Star already exist with given name:%s and distance:%s", star.getName(), star.getDistance()));
+        Star savedStar;
+        try {
+            savedStar = starRepository.saveAndFlush(star);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateStar(e, star.getName(), star.getDistance());
         }
-        return starRepository.save(star);
+        afterCommit(() -> {
+            nameIndex.put(savedStar.getId(), savedStar.getName());
+            distanceStats.put(savedStar.getId(), savedStar.getDistance());
+            changeFeed.publish(StarChange.created(savedStar.getId(), savedStar.getName(), savedStar.getDistance()));
+        });
+        return savedStar;
     }
 
-    public Star updateStar(Star star) {
-        LOGGER.info("Update Star");
-        LOGGER.debug("Model Star:" + star);
-        return starRepository.save(star);
+    /**
+     * Creates the Stars in chunks: one set-based duplicate check per chunk, then JDBC batched inserts.
+     * Items which already exist, repeat an earlier item or have no name are skipped.
+     * When another request inserts one of the Stars between the check and the insert the whole batch fails with
+     * {@link ResourceNotFoundException}, the caller can send it again to get the per item results.
+     *
+     * @param starDtos Stars to create
+     * @return result of every item, in the order of {@code starDtos}
+     */
+    @Transactional
+    public List<StarBatchResult> createStars(List<StarDto> starDtos) {
+        LOGGER.info("Creating Stars batch");
+        LOGGER.debug("Batch size:" + starDtos.size());
+        List<StarBatchResult> results = new ArrayList<>(starDtos.size());
+        for (int from = 0; from < starDtos.size(); from += BATCH_CHUNK_SIZE) {
+            List<StarDto> chunk = starDtos.subList(from, Math.min(starDtos.size(), from + BATCH_CHUNK_SIZE));
+            results.addAll(createChunk(chunk, from));
+        }
+        return results;
+    }
+
+    private List<StarBatchResult> createChunk(List<StarDto> chunk, int offset) {
+        Set<String> names = chunk.stream()
+                .filter(StarService::isValid)
+                .map(StarDto::getName)
+                .collect(Collectors.toSet());
+        Map<String, Set<Long>> takenDistances = new HashMap<>();
+        for (Star existing : starRepository.findByNameIn(names)) {
+            takenDistances.computeIfAbsent(existing.getName(), name -> new HashSet<>()).add(existing.getDistance());
+        }
+        StarBatchResult[] results = new StarBatchResult[chunk.size()];
+        List<Star> newStars = new ArrayList<>();
+        List<Integer> newStarIndexes = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            StarDto starDto = chunk.get(i);
+            if (!isValid(starDto)) {
+                results[i] = StarBatchResult.invalid(offset + i);
+            } else if (!takenDistances.computeIfAbsent(starDto.getName(), name -> new HashSet<>()).add(starDto.getDistance())) {
+                results[i] = StarBatchResult.duplicate(offset + i);
+            } else {
+                newStars.add(new Star(starDto.getName(), starDto.getDistance()));
+                newStarIndexes.add(i);
+            }
+        }
+        List<Star> savedStars;
+        try {
+            savedStars = starRepository.saveAll(newStars);
+            starRepository.flushAndClear();
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent request inserted one of the Stars after the duplicate check, the session cannot go on with the other items
+            throw duplicateStar(e, "A Star of the batch was created concurrently, the batch was not saved");
+        }
+        for (int i = 0; i < savedStars.size(); i++) {
+            int index = newStarIndexes.get(i);
+            results[index] = StarBatchResult.created(offset + index, savedStars.get(i).getId());
+        }
+        if (!savedStars.isEmpty()) {
+            afterCommit(() -> {
+                savedStars.forEach(star -> {
+                    nameIndex.put(star.getId(), star.getName());
+                    distanceStats.put(star.getId(), star.getDistance());
+                });
+                changeFeed.publish(savedStars.stream()
+                        .map(star -> StarChange.created(star.getId(), star.getName(), star.getDistance()))
+                        .collect(Collectors.toList()));
+            });
+        }
+        return Arrays.asList(results);
     }
 
-    public void deleteStar(Long id) {
+    private static boolean isValid(StarDto starDto) {
+        return starDto != null && starDto.getName() != null && !starDto.getName().isBlank();
+    }
+
+    /**
+     * Overwrites the Star with a single UPDATE statement, without loading it first.
+     *
+     * @param id      id of the Star to update
+     * @param starDto new name and distance
+     * @return the updated {@link Star}, empty if there is no Star with the given id
+     */
+    @Transactional
+    public Optional<Star> updateStar(Long id, StarDto starDto) {
+        LOGGER.info("Update Star of id:" + id);
+        LOGGER.debug("Model Star:" + starDto.getName() + " " + starDto.getDistance());
+        int updated;
+        try {
+            updated = starRepository.updateNameAndDistance(id, starDto.getName(), starDto.getDistance());
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateStar(e, starDto.getName(), starDto.getDistance());
+        }
+        if (updated == 0) {
+            return Optional.empty();
+        }
+        // the UPDATE runs in this transaction, so the row is read back with the version it has just set
+        Long version = starRepository.findVersionById(id).orElse(null);
+        afterCommit(() -> {
+            nameIndex.put(id, starDto.getName());
+            distanceStats.put(id, starDto.getDistance());
+            starCache.invalidate(id);
+            changeFeed.publish(StarChange.updated(id, starDto.getName(), starDto.getDistance()));
+        });
+        return Optional.of(new Star(id, starDto.getName(), starDto.getDistance(), version));
+    }
+
+    /**
+     * Changes only the supplied fields of the Star with a single UPDATE statement.
+     *
+     * @param id              id of the Star to update
+     * @param starPatchDto    fields to change, null ones are kept
+     * @param expectedVersion version the Star must still have, null to skip the check
+     * @return outcome of the update
+     */
+    @Transactional
+    public PatchResult patchStar(Long id, StarPatchDto starPatchDto, Long expectedVersion) {
+        LOGGER.info("Patch Star of id:" + id);
+        LOGGER.debug("Expected version:" + expectedVersion);
+        int updated;
+        try {
+            updated = starRepository.patch(id, starPatchDto.getName(), starPatchDto.getDistance(), expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateStar(e, starPatchDto.getName(), starPatchDto.getDistance());
+        }
+        if (updated == 0) {
+            return expectedVersion != null && starRepository.existsById(id) ? PatchResult.VERSION_CONFLICT : PatchResult.NOT_FOUND;
+        }
+        afterCommit(() -> {
+            if (starPatchDto.getName() != null) {
+                nameIndex.put(id, starPatchDto.getName());
+            }
+            if (starPatchDto.getDistance() != null) {
+                distanceStats.put(id, starPatchDto.getDistance());
+            }
+            starCache.invalidate(id);
+            changeFeed.publish(StarChange.updated(id, starPatchDto.getName(), starPatchDto.getDistance()));
+        });
+        return PatchResult.UPDATED;
+    }
+
+    enum PatchResult {
+        UPDATED, NOT_FOUND, VERSION_CONFLICT
+    }
+
+    /**
+     * Deletes the Star with a single DELETE statement.
+     *
+     * @param id id of the Star to delete
+     * @return true if the Star existed, otherwise false
+     */
+    @Transactional
+    public boolean deleteStar(Long id) {
         LOGGER.info("Delete Star of if:" + id);
-        starRepository.deleteById(id);
+        if (starRepository.deleteStarById(id) == 0) {
+            return false;
+        }
+        afterCommit(() -> {
+            nameIndex.remove(id);
+            distanceStats.remove(id);
+            starCache.invalidate(id);
+            changeFeed.publish(StarChange.deleted(id));
+        });
         LOGGER.info("Star deleted");
+        return true;
+    }
+
+    /**
+     * Deletes the Stars with the given ids in one set-based statement.
+     *
+     * @param ids ids of the Stars to delete
+     * @return number of deleted Stars
+     */
+    @Transactional
+    public int deleteStars(Collection<Long> ids) {
+        LOGGER.info("Delete Stars by ids");
+        LOGGER.debug("Ids count:" + ids.size());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int deleted = starRepository.deleteStarsByIds(ids);
+        afterCommit(() -> {
+            ids.forEach(id -> {
+                nameIndex.remove(id);
+                distanceStats.remove(id);
+                starCache.invalidate(id);
+            });
+            // the statement does not tell which of the ids existed, deleting an unknown one is a no-op for subscribers too
+            if (deleted > 0) {
+                changeFeed.publish(ids.stream().distinct().map(StarChange::deleted).collect(Collectors.toList()));
+            }
+        });
+        LOGGER.info("Stars deleted:" + deleted);
+        return deleted;
     }
 
+    /**
+     * Deletes the Stars with the distance in the given range in one set-based statement.
+     *
+     * @param minDistance lowest distance to delete, inclusive
+     * @param maxDistance highest distance to delete, inclusive
+     * @return number of deleted Stars
+     */
+    @Transactional
+    public int deleteStarsByDistance(long minDistance, long maxDistance) {
+        LOGGER.info("Delete Stars by distance");
+        LOGGER.debug("Distance range:" + minDistance + ".." + maxDistance);
+        int deleted = starRepository.deleteStarsByDistance(minDistance, maxDistance);
+        if (deleted > 0) {
+            afterCommit(() -> {
+                nameIndex.invalidate();
+                distanceStats.invalidate();
+                starCache.invalidateAll();
+                changeFeed.publish(StarChange.resync());
+            });
+        }
+        LOGGER.info("Stars deleted:" + deleted);
+        return deleted;
+    }
+
+    /**
+     * Checks if all persisted Star's names are unique, using the name index instead of loading the table.
+     *
+     * @return true if there are no duplicates, otherwise false.
+     */
+    public boolean areNamesUnique() {
+        LOGGER.info("Checking star names index for duplicates");
+        return nameIndex().isUnique();
+    }
+
+    /**
+     * Returns the names shared by more than one persisted {@link Star}.
+     *
+     * @return sorted collection of duplicated names, empty if all names are unique
+     */
+    public List<String> findDuplicateNames() {
+        LOGGER.info("Searching for duplicated star names");
+        return nameIndex().duplicates();
+    }
+
+    /**
+     * Returns the persisted Stars whose name starts with the prefix and contains the substring, ordered by name.
+     * The matches are picked from the name index, only the returned Stars are read from the database.
+     *
+     * @param prefix    required start of the name, null or empty for any
+     * @param substring required part of the name, null or empty for any
+     * @param limit     maximum number of Stars to return, capped at {@link #MAX_PAGE_SIZE}
+     * @return collection of matching {@link Star} objects
+     */
+    @Transactional(readOnly = true)
+    public List<Star> searchByName(String prefix, String substring, int limit) {
+        LOGGER.info("Searching stars by name");
+        LOGGER.debug("Prefix:" + prefix + " substring:" + substring);
+        sizeValidator(limit);
+        List<Long> ids = nameIndex().search(prefix, substring, Math.min(limit, MAX_PAGE_SIZE));
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Star> starsById = starRepository.findValuesByIds(ids).stream()
+                .collect(Collectors.toMap(Star::getId, Function.identity()));
+        return ids.stream()
+                .map(starsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns count, min, max, mean and approximate percentiles of the persisted Stars' distances.
+     * They are maintained on every change, so the cost does not depend on the catalog size.
+     *
+     * @return distance statistics of the catalog
+     */
+    public StarStats getDistanceStats() {
+        LOGGER.debug("Get distance stats");
+        buildIfMissing(distanceStats::isBuilt, distanceStats::rebuild);
+        return distanceStats.snapshot();
+    }
+
+    /**
+     * Sends the changes committed from now on to the subscriber, preceded by those published after {@code lastEventId}
+     * when they are still buffered, see {@link StarChangeFeed}.
+     *
+     * @param lastEventId event id of the last change the subscriber received, null for none
+     * @param subscriber   writes the changes to the client
+     * @return the subscription, empty when too many subscribers are connected
+     */
+    public Optional<StarChangeFeed.Subscription> subscribeToChanges(String lastEventId, StarChangeFeed.Subscriber subscriber) {
+        LOGGER.debug("Subscribe to changes after:" + lastEventId);
+        return changeFeed.subscribe(lastEventId, subscriber);
+    }
+
+    @PreDestroy
+    public void closeChangeFeed() {
+        changeFeed.close();
+    }
+
+    /**
+     * Builds the name index and the distance statistics once the application is up, so the first request does not pay for it.
+     * Skipped with {@code star.index.build-on-startup=false}, the indexes are then built by the first request using them.
+     */
+    @EventListener(value = ApplicationReadyEvent.class,
+            condition = "@environment.getProperty('star.index.build-on-startup', T(Boolean), true)")
+    public void buildIndexes() {
+        if (nameIndex.isBuilt()) {
+            LOGGER.info("Star indexes already loaded");
+            return;
+        }
+        LOGGER.info("Building star indexes");
+        rebuildIndexes();
+    }
+
+    /**
+     * Replaces the name index and the distance statistics with the given Stars, for a catalog restored outside of JPA,
+     * e.g. from a snapshot. The cached Stars are dropped and the change feed subscribers are told to resync.
+     *
+     * @param stars all persisted {@link Star} objects
+     * @return the catalog version of the loaded Stars, see {@link #getCatalogVersion()}
+     */
+    public String loadIndexes(Collection<Star> stars) {
+        String version;
+        synchronized (indexLock) {
+            nameIndex.rebuild(stars);
+            distanceStats.rebuild(stars);
+            starCache.invalidateAll();
+            changeFeed.publish(StarChange.resync());
+            catalogVersion.incrementAndGet();
+            version = getCatalogVersion();
+        }
+        LOGGER.info("Star indexes loaded:" + stars.size());
+        return version;
+    }
+
+    /**
+     * Reloads the name index and the distance statistics from the repository, correcting any drift.
+     * The reload is dropped if a change commits while the Stars are being read, the next run picks it up.
+     */
+    @Scheduled(fixedDelayString = "#{@starProperties.index.rebuildInterval.toMillis()}",
+            initialDelayString = "#{@starProperties.index.rebuildInterval.toMillis()}")
+    public void rebuildIndexes() {
+        long version = catalogVersion.get();
+        List<Star> stars = starRepository.findAllValuesFromPrimary();
+        synchronized (indexLock) {
+            if (catalogVersion.get() != version) {
+                LOGGER.debug("Catalog changed during the indexes rebuild, skipping it");
+                return;
+            }
+            nameIndex.rebuild(stars);
+            distanceStats.rebuild(stars);
+        }
+        LOGGER.debug("Indexes rebuilt:" + stars.size());
+    }
 
     /**
      * The method accepts a collection of {@link Star} and checks if all Star's names are unique.
@@ -69,8 +515,9 @@ class StarService {
         LOGGER.info("Searching for unique star");
         LOGGER.debug("List size:" + stars.size());
         listValidator(stars);
+        Set<String> names = new HashSet<>(stars.size() * 2);
         for (Star star : stars) {
-            if (!(Collections.frequency(stars, star) == 1)) {
+            if (!names.add(star.getName())) {
                 return false;
             }
         }
@@ -79,6 +526,7 @@ class StarService {
 
     /**
      * The method searches and returns the Stars closest to the Sun.
+     * It keeps a bounded heap of the best candidates, so it runs in O(n log size) instead of sorting the whole collection.
      *
      * @param stars unsorted collection of {@link Star} objects
      * @param size  number of Stars to return
@@ -89,12 +537,79 @@ class StarService {
         LOGGER.info("Finding closest star");
         LOGGER.debug("Size List to return:" + size);
         listValidator(stars);
-        if (size <= 0) {
-            throw new ResourceNotFoundException("The size should be greater than 0");
-        } else if (stars.size() < size) {
-            size = stars.size();
+        sizeValidator(size);
+        PriorityQueue<Star> farthestFirst = new PriorityQueue<>(Math.min(size, stars.size()) + 1, BY_DISTANCE.reversed());
+        for (Star star : stars) {
+            if (farthestFirst.size() < size) {
+                farthestFirst.add(star);
+            } else if (star.getDistance() < farthestFirst.peek().getDistance()) {
+                farthestFirst.poll();
+                farthestFirst.add(star);
+            }
         }
-        return stars.stream().sorted(Comparator.comparingLong(Star::getDistance)).collect(Collectors.toList()).subList(0, size);
+        List<Star> closestStars = new ArrayList<>(farthestFirst);
+        closestStars.sort(BY_DISTANCE);
+        return closestStars;
+    }
+
+    /**
+     * The method returns the persisted Stars closest to the Sun, letting the database pick them through the distance index.
+     *
+     * @param size number of Stars to return, capped at {@value #MAX_PAGE_SIZE}
+     * @return collection of {@link Star} objects ordered by distance
+     */
+    @Transactional(readOnly = true)
+    public List<Star> findClosestStars(int size) {
+        LOGGER.info("Finding closest persisted star");
+        LOGGER.debug("Size List to return:" + size);
+        sizeValidator(size);
+        return starRepository.findClosest(PageRequest.of(0, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    /**
+     * The method returns the persisted Stars with the distance nearest to the given one.
+     * It reads at most {@code size} Stars on each side of the distance through the distance index and merges them outward,
+     * so it costs O(log n + size) whatever the catalog size.
+     *
+     * @param distance reference distance
+     * @param size     number of Stars to return, capped at {@value #MAX_PAGE_SIZE}
+     * @return collection of {@link Star} objects ordered from the nearest to the farthest from the reference distance
+     */
+    @Transactional(readOnly = true)
+    public List<Star> findNearestStars(long distance, int size) {
+        LOGGER.debug("Finding stars nearest to distance:" + distance + " size:" + size);
+        sizeValidator(size);
+        PageRequest page = PageRequest.of(0, Math.min(size, MAX_PAGE_SIZE));
+        List<Star> above = starRepository.findFromDistanceUp(distance, page);
+        List<Star> below = starRepository.findBelowDistanceDown(distance, page);
+        List<Star> nearestStars = new ArrayList<>(page.getPageSize());
+        int i = 0;
+        int j = 0;
+        while (nearestStars.size() < page.getPageSize() && (i < above.size() || j < below.size())) {
+            // both gaps are non-negative, compared unsigned they cannot overflow
+            if (j == below.size() || i < above.size()
+                    && Long.compareUnsigned(above.get(i).getDistance() - distance, distance - below.get(j).getDistance()) <= 0) {
+                nearestStars.add(above.get(i++));
+            } else {
+                nearestStars.add(below.get(j++));
+            }
+        }
+        return nearestStars;
+    }
+
+    /**
+     * The method returns the persisted Stars with the distance in the given range, read through the distance index.
+     *
+     * @param minDistance lowest distance, inclusive
+     * @param maxDistance highest distance, inclusive
+     * @param limit       maximum number of Stars to return, capped at {@value #MAX_PAGE_SIZE}
+     * @return collection of {@link Star} objects ordered by distance
+     */
+    @Transactional(readOnly = true)
+    public List<Star> findStarsInRange(long minDistance, long maxDistance, int limit) {
+        LOGGER.debug("Finding stars with distance between:" + minDistance + " and:" + maxDistance);
+        sizeValidator(limit);
+        return starRepository.findByDistanceBetween(minDistance, maxDistance, PageRequest.of(0, Math.min(limit, MAX_PAGE_SIZE)));
     }
 
     /**
@@ -108,7 +623,27 @@ class StarService {
         LOGGER.info("Filtering List of Stars by regex");
         LOGGER.debug("Regex:" + regExpr);
         listValidator(stars);
-        return stars.stream().filter(s -> s.getName().matches(regExpr)).collect(Collectors.toList());
+        return filterByPattern(stars, namePatterns.compile(regExpr));
+    }
+
+    /**
+     * It returns the persisted Stars with the name matching the regular expression.
+     * When the expression starts with literal text, only the Stars whose name starts with it are loaded.
+     *
+     * @param regExpr regular expression to match stars' names
+     * @return collection of {@link Star} with the name matching the regular expression
+     */
+    @Transactional(readOnly = true)
+    public List<Star> filterByRegExpr(String regExpr) {
+        LOGGER.info("Filtering persisted Stars by regex");
+        LOGGER.debug("Regex:" + regExpr);
+        Pattern pattern = namePatterns.compile(regExpr);
+        String prefix = StarNamePatterns.literalPrefix(regExpr);
+        LOGGER.debug("Literal prefix:" + prefix);
+        List<Star> candidates = prefix.isEmpty()
+                ? starRepository.findAllValues()
+                : starRepository.findValuesByNameLike(likePrefix(prefix));
+        return filterByPattern(candidates, pattern);
     }
 
     protected static void listValidator(List<Star> stars) {
@@ -118,5 +653,97 @@ class StarService {
 
     }
 
+    private static List<Star> filterByPattern(List<Star> stars, Pattern pattern) {
+        Stream<Star> candidates = stars.size() >= PARALLEL_MATCH_THRESHOLD ? stars.parallelStream() : stars.stream();
+        return candidates.filter(s -> pattern.matcher(s.getName()).matches()).collect(Collectors.toList());
+    }
+
+    /**
+     * Translates a violation of the (name, distance) unique index to the "already exist" error, other violations are returned as they are.
+     */
+    private static RuntimeException duplicateStar(DataIntegrityViolationException e, String name, Object distance) {
+        return duplicateStar(e, String.format("Star already exist with given name:%s and distance:%s", name, distance));
+    }
+
+    private static RuntimeException duplicateStar(DataIntegrityViolationException e, String message) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+                if (constraintName != null && constraintName.toLowerCase(Locale.ROOT).contains(NAME_DISTANCE_CONSTRAINT)) {
+                    return new ResourceNotFoundException(message);
+                }
+                return e;
+            }
+        }
+        return e;
+    }
+
+    private static Star copyOf(Star star) {
+        return new Star(star.getId(), star.getName(), star.getDistance(), star.getVersion());
+    }
+
+    private static String likePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    private static void sizeValidator(int size) {
+        if (size <= 0) {
+            throw new ResourceNotFoundException("The size should be greater than 0");
+        }
+    }
+
+    private StarNameIndex nameIndex() {
+        buildIfMissing(nameIndex::isBuilt, nameIndex::rebuild);
+        return nameIndex;
+    }
+
+    /**
+     * Builds a missing in-memory index from the primary. The Stars are read outside of the index lock, so changes keep
+     * committing meanwhile, and the read is only installed if none committed during it. After a few such attempts
+     * the read is done under the lock, holding the changes back until the index is built.
+     */
+    private void buildIfMissing(BooleanSupplier built, Consumer<List<Star>> rebuild) {
+        for (int attempt = 0; attempt < INDEX_BUILD_ATTEMPTS && !built.getAsBoolean(); attempt++) {
+            long version = catalogVersion.get();
+            List<Star> stars = starRepository.findAllValuesFromPrimary();
+            synchronized (indexLock) {
+                if (catalogVersion.get() == version && !built.getAsBoolean()) {
+                    rebuild.accept(stars);
+                }
+            }
+        }
+        if (!built.getAsBoolean()) {
+            synchronized (indexLock) {
+                if (!built.getAsBoolean()) {
+                    rebuild.accept(starRepository.findAllValuesFromPrimary());
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the action and then bumps the catalog version once the surrounding transaction commits,
+     * or right away when there is none, so neither the in-memory indexes nor the version see changes that were rolled back.
+     * Both happen under the index lock, so {@link #rebuildIndexes()} either sees the new version or runs before the action.
+     */
+    private void afterCommit(Runnable action) {
+        Runnable change = () -> {
+            synchronized (indexLock) {
+                action.run();
+                catalogVersion.incrementAndGet();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
 
 }
@@ -0,0 +1,274 @@
+package pl.setlikD.restapi.star;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar binary snapshot of the star catalog.
+ * <p>
+ * Little-endian layout, the long columns aligned to 8 bytes:
+ * <pre>
+ * header     "STARSNAP", int format version, int star count, int dictionary size, int dictionary bytes
+ * ids        long[count]
+ * distances  long[count]
+ * versions   long[count]
+ * names      int[count], index of the name in the dictionary
+ * offsets    int[dictionary size + 1], start of every dictionary name, then the end of the last one
+ * dictionary UTF-8 bytes of the distinct names
+ * </pre>
+ * A snapshot is read through a read-only memory mapping: opening it checks the header, the name column and the
+ * dictionary offsets, the long columns are paged in by the operating system as they are read.
+ */
+final class StarSnapshot {
+
+    static final int FORMAT_VERSION = 1;
+    private static final byte[] MAGIC = "STARSNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_BYTES = MAGIC.length + 4 * Integer.BYTES;
+
+    private final int size;
+    private final LongBuffer ids;
+    private final LongBuffer distances;
+    private final LongBuffer versions;
+    private final IntBuffer nameRefs;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer dictionary;
+    private final String[] names;
+
+    private StarSnapshot(Path path, ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES) {
+            throw new IOException("Not a star snapshot:" + path);
+        }
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a star snapshot:" + path);
+        }
+        int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported star snapshot format version:" + formatVersion + " in " + path);
+        }
+        size = buffer.getInt();
+        int dictionarySize = buffer.getInt();
+        int dictionaryBytes = buffer.getInt();
+        if (size < 0 || dictionarySize < 0 || dictionaryBytes < 0
+                || buffer.capacity() != sizeOf(size, dictionarySize, dictionaryBytes)) {
+            throw new IOException("Truncated star snapshot:" + path);
+        }
+        ids = section(buffer, (long) size * Long.BYTES).asLongBuffer();
+        distances = section(buffer, (long) size * Long.BYTES).asLongBuffer();
+        versions = section(buffer, (long) size * Long.BYTES).asLongBuffer();
+        nameRefs = section(buffer, (long) size * Integer.BYTES).asIntBuffer();
+        nameOffsets = section(buffer, (long) (dictionarySize + 1) * Integer.BYTES).asIntBuffer();
+        dictionary = section(buffer, dictionaryBytes);
+        names = new String[dictionarySize];
+        checkDictionary(path, dictionarySize, dictionaryBytes);
+    }
+
+    /**
+     * Checks that every name reference points into the dictionary and every name lies within the dictionary bytes,
+     * so reading a damaged snapshot fails here instead of with an index error on some later star.
+     */
+    private void checkDictionary(Path path, int dictionarySize, int dictionaryBytes) throws IOException {
+        int previousOffset = 0;
+        for (int ref = 0; ref <= dictionarySize; ref++) {
+            int offset = nameOffsets.get(ref);
+            if (offset < previousOffset || (ref == 0 && offset != 0) || (ref == dictionarySize && offset != dictionaryBytes)) {
+                throw new IOException("Corrupted star snapshot:" + path + ", invalid offset of dictionary name:" + ref);
+            }
+            previousOffset = offset;
+        }
+        for (int index = 0; index < size; index++) {
+            int ref = nameRefs.get(index);
+            if (ref < 0 || ref >= dictionarySize) {
+                throw new IOException("Corrupted star snapshot:" + path + ", invalid name of star:" + index);
+            }
+        }
+    }
+
+    /**
+     * Maps the snapshot file into memory.
+     *
+     * @param path snapshot file written by a {@link Writer}
+     * @return the snapshot, reading its columns straight from the mapping
+     * @throws IOException when the file cannot be read or is not a valid snapshot
+     */
+    static StarSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Star snapshot too large to map:" + channel.size());
+            }
+            // the mapping stays valid once the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new StarSnapshot(path, buffer);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long id(int index) {
+        return ids.get(index);
+    }
+
+    long distance(int index) {
+        return distances.get(index);
+    }
+
+    long version(int index) {
+        return versions.get(index);
+    }
+
+    /**
+     * Decodes the name on first use, stars sharing a name share the decoded string.
+     */
+    String name(int index) {
+        int ref = nameRefs.get(index);
+        String name = names[ref];
+        if (name == null) {
+            int start = nameOffsets.get(ref);
+            byte[] bytes = new byte[nameOffsets.get(ref + 1) - start];
+            dictionary.get(start, bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+            names[ref] = name;
+        }
+        return name;
+    }
+
+    Star star(int index) {
+        return new Star(id(index), name(index), distance(index), version(index));
+    }
+
+    int getDictionarySize() {
+        return names.length;
+    }
+
+    private static ByteBuffer section(ByteBuffer buffer, long bytes) {
+        ByteBuffer section = buffer.slice(buffer.position(), (int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(buffer.position() + (int) bytes);
+        return section;
+    }
+
+    private static long sizeOf(int size, int dictionarySize, long dictionaryBytes) {
+        return HEADER_BYTES + 3L * size * Long.BYTES + (long) size * Integer.BYTES
+                + (dictionarySize + 1L) * Integer.BYTES + dictionaryBytes;
+    }
+
+    /**
+     * Collects the stars column by column, then writes them to a temporary file moved over the target,
+     * so a reader never sees a partial snapshot.
+     */
+    static final class Writer {
+
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private long[] distances = new long[INITIAL_CAPACITY];
+        private long[] versions = new long[INITIAL_CAPACITY];
+        private int[] nameRefs = new int[INITIAL_CAPACITY];
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<byte[]> dictionaryNames = new ArrayList<>();
+        private long dictionaryBytes;
+        private int size;
+
+        Writer add(Star star) {
+            return add(star.getId(), star.getName(), star.getDistance(), star.getVersion() == null ? 0 : star.getVersion());
+        }
+
+        Writer add(long id, String name, long distance, long version) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                distances = Arrays.copyOf(distances, capacity);
+                versions = Arrays.copyOf(versions, capacity);
+                nameRefs = Arrays.copyOf(nameRefs, capacity);
+            }
+            ids[size] = id;
+            distances[size] = distance;
+            versions[size] = version;
+            nameRefs[size] = dictionary.computeIfAbsent(name, key -> {
+                byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                dictionaryNames.add(bytes);
+                dictionaryBytes += bytes.length;
+                return dictionaryNames.size() - 1;
+            });
+            size++;
+            return this;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(Path path) throws IOException {
+            if (sizeOf(size, dictionaryNames.size(), dictionaryBytes) > Integer.MAX_VALUE) {
+                throw new IOException("Star snapshot too large to map:" + size + " stars");
+            }
+            Path absolutePath = path.toAbsolutePath();
+            Files.createDirectories(absolutePath.getParent());
+            Path temporary = absolutePath.resolveSibling(absolutePath.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.put(MAGIC).putInt(FORMAT_VERSION).putInt(size).putInt(dictionaryNames.size()).putInt((int) dictionaryBytes);
+                for (long[] column : new long[][]{ids, distances, versions}) {
+                    for (int i = 0; i < size; i++) {
+                        ensureRemaining(channel, buffer, Long.BYTES).putLong(column[i]);
+                    }
+                }
+                for (int i = 0; i < size; i++) {
+                    ensureRemaining(channel, buffer, Integer.BYTES).putInt(nameRefs[i]);
+                }
+                int offset = 0;
+                for (byte[] name : dictionaryNames) {
+                    ensureRemaining(channel, buffer, Integer.BYTES).putInt(offset);
+                    offset += name.length;
+                }
+                ensureRemaining(channel, buffer, Integer.BYTES).putInt(offset);
+                for (byte[] name : dictionaryNames) {
+                    int written = 0;
+                    while (written < name.length) {
+                        int chunk = Math.min(name.length - written, WRITE_BUFFER_BYTES);
+                        ensureRemaining(channel, buffer, chunk).put(name, written, chunk);
+                        written += chunk;
+                    }
+                }
+                flush(channel, buffer);
+                channel.force(true);
+            }
+            Files.move(temporary, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static ByteBuffer ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush(channel, buffer);
+            }
+            return buffer;
+        }
+
+        private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package pl.setlikD.restapi.star;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Command line access to {@link StarSnapshot} files, without starting the application:
+ * <pre>
+ * export &lt;snapshot&gt; &lt;ndjson file or -&gt;   writes one JSON Star per line
+ * import &lt;ndjson file&gt; &lt;snapshot&gt;        builds a snapshot from one JSON Star per line
+ * info &lt;snapshot&gt;                        prints the star count and the distance range
+ * </pre>
+ */
+public final class StarSnapshotCli {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private StarSnapshotCli() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("export")) {
+            exportSnapshot(Paths.get(args[1]), args[2]);
+        } else if (args.length == 3 && args[0].equals("import")) {
+            importSnapshot(Paths.get(args[1]), Paths.get(args[2]));
+        } else if (args.length == 2 && args[0].equals("info")) {
+            printInfo(Paths.get(args[1]));
+        } else {
+            System.err.println("Usage: export <snapshot> <ndjson|->, import <ndjson> <snapshot>, info <snapshot>");
+            System.exit(2);
+        }
+    }
+
+    static void exportSnapshot(Path snapshotPath, String target) throws IOException {
+        StarSnapshot snapshot = StarSnapshot.open(snapshotPath);
+        ObjectWriter writer = MAPPER.writerFor(Star.class);
+        Writer out = target.equals("-")
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(Paths.get(target));
+        try {
+            for (int i = 0; i < snapshot.size(); i++) {
+                out.write(writer.writeValueAsString(snapshot.star(i)));
+                out.write('\n');
+            }
+        } finally {
+            if (target.equals("-")) {
+                out.flush();
+            } else {
+                out.close();
+            }
+        }
+    }
+
+    static void importSnapshot(Path ndjsonPath, Path snapshotPath) throws IOException {
+        StarSnapshot.Writer writer = new StarSnapshot.Writer();
+        try (MappingIterator<Star> stars = MAPPER.readerFor(Star.class).readValues(ndjsonPath.toFile())) {
+            while (stars.hasNext()) {
+                Star star = stars.next();
+                if (star.getId() == null || star.getName() == null) {
+                    throw new IOException("Every Star needs an id and a name");
+                }
+                writer.add(star);
+            }
+        }
+        writer.writeTo(snapshotPath);
+        System.out.println("Imported stars:" + writer.size());
+    }
+
+    static void printInfo(Path snapshotPath) throws IOException {
+        StarSnapshot snapshot = StarSnapshot.open(snapshotPath);
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            min = Math.min(min, snapshot.distance(i));
+            max = Math.max(max, snapshot.distance(i));
+            ids.add(snapshot.id(i));
+        }
+        System.out.println("Stars:" + snapshot.size());
+        System.out.println("Distinct ids:" + ids.size());
+        System.out.println("Distinct names:" + snapshot.getDictionarySize());
+        if (snapshot.size() > 0) {
+            System.out.println("Distance:" + min + ".." + max);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package pl.setlikD.restapi.star;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Catalog snapshots, enabled with {@code star.snapshot.enabled=true}.
+ * <p>
+ * The catalog is written to a {@link StarSnapshot} file every interval and on shutdown, and restored from it on startup.
+ * The writer and the loader are never lazy, so they also run with {@code spring.main.lazy-initialization=true}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "star.snapshot", name = "enabled", havingValue = "true")
+class StarSnapshotConfiguration {
+
+    @Bean
+    @Lazy(false)
+    StarSnapshotWriter starSnapshotWriter(StarService starService, StarProperties properties) {
+        return new StarSnapshotWriter(starService, properties.getSnapshot());
+    }
+
+    @Bean
+    @Lazy(false)
+    @ConditionalOnProperty(prefix = "star.snapshot", name = "load-on-startup", havingValue = "true", matchIfMissing = true)
+    StarSnapshotLoader starSnapshotLoader(StarProperties properties, JdbcTemplate jdbcTemplate,
+                                          PlatformTransactionManager transactionManager, StarService starService,
+                                          StarSnapshotWriter writer) {
+        return new StarSnapshotLoader(properties.getSnapshot(), jdbcTemplate, new TransactionTemplate(transactionManager),
+                starService, writer);
+    }
+}
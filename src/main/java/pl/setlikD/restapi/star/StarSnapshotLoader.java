@@ -0,0 +1,84 @@
+package pl.setlikD.restapi.star;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restores the catalog from the snapshot file before the application starts serving.
+ * It runs once all singletons are created, which is before the web server is started, so no request
+ * sees the seeded catalog in between.
+ * <p>
+ * The star table is replaced in one transaction with plain JDBC batches, the id sequence restarts past the
+ * highest id, then the indexes are built from the snapshot instead of reading the table back.
+ */
+class StarSnapshotLoader implements SmartInitializingSingleton {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StarSnapshotLoader.class.getName());
+    private static final String INSERT_STAR = "insert into star(id, name, distance, version) values (?, ?, ?, ?)";
+    private static final int BATCH_SIZE = 1000;
+
+    private final StarProperties.Snapshot properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StarService starService;
+    private final StarSnapshotWriter writer;
+
+    StarSnapshotLoader(StarProperties.Snapshot properties, JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate, StarService starService, StarSnapshotWriter writer) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.starService = starService;
+        this.writer = writer;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load the star snapshot", e);
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.isRegularFile(properties.getPath())) {
+            LOGGER.info("No star snapshot at " + properties.getPath());
+            return;
+        }
+        long start = System.nanoTime();
+        StarSnapshot snapshot = StarSnapshot.open(properties.getPath());
+        List<Star> stars = new ArrayList<>(snapshot.size());
+        long maxId = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            Star star = snapshot.star(i);
+            stars.add(star);
+            maxId = Math.max(maxId, star.getId());
+        }
+        long nextId = maxId + 1;
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from star");
+            jdbcTemplate.batchUpdate(INSERT_STAR, stars, BATCH_SIZE, (statement, star) -> {
+                statement.setLong(1, star.getId());
+                statement.setString(2, star.getName());
+                statement.setLong(3, star.getDistance());
+                statement.setLong(4, star.getVersion());
+            });
+            jdbcTemplate.execute("alter sequence star_seq restart with " + nextId);
+        });
+        // the file already holds this catalog, the writer has nothing to write until it changes
+        writer.markWritten(starService.loadIndexes(stars));
+        LOGGER.info("Star snapshot loaded:" + stars.size() + " stars in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+    }
+}
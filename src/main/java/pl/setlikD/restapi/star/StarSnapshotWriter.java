@@ -0,0 +1,75 @@
+package pl.setlikD.restapi.star;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the catalog to the snapshot file every interval, skipping the runs where the catalog version has not moved.
+ */
+class StarSnapshotWriter implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StarSnapshotWriter.class.getName());
+
+    private final StarService starService;
+    private final StarProperties.Snapshot properties;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "star-snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private String writtenVersion;
+
+    StarSnapshotWriter(StarService starService, StarProperties.Snapshot properties) {
+        this.starService = starService;
+        this.properties = properties;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        LOGGER.info("Writing star snapshots to " + properties.getPath() + " every " + properties.getInterval());
+        long interval = properties.getInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::writeIfChanged, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (properties.isWriteOnShutdown()) {
+            executor.awaitTermination(properties.getInterval().toMillis(), TimeUnit.MILLISECONDS);
+            writeIfChanged();
+        }
+    }
+
+    /**
+     * Records that the snapshot file already holds the catalog of the given version, e.g. because it was loaded from it.
+     */
+    synchronized void markWritten(String version) {
+        writtenVersion = version;
+    }
+
+    synchronized void writeIfChanged() {
+        String version = starService.getCatalogVersion();
+        if (version.equals(writtenVersion)) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            StarSnapshot.Writer writer = new StarSnapshot.Writer();
+            starService.exportStars(writer::add);
+            writer.writeTo(properties.getPath());
+            writtenVersion = version;
+            LOGGER.info("Star snapshot written:" + writer.size() + " stars in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        } catch (IOException | RuntimeException e) {
+            // the previous snapshot stays in place, the next run retries
+            LOGGER.warn("Star snapshot failed:" + e.getMessage());
+        }
+    }
+}
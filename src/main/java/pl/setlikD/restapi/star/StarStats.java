@@ -0,0 +1,43 @@
+package pl.setlikD.restapi.star;
+
+import java.util.Map;
+
+/**
+ * Catalog-wide aggregates of {@link Star#getDistance()}. The percentiles are approximate, see {@link DistanceSketch}.
+ */
+public class StarStats {
+
+    private final long count;
+    private final Long min;
+    private final Long max;
+    private final Double mean;
+    private final Map<String, Long> percentiles;
+
+    StarStats(long count, Long min, Long max, Double mean, Map<String, Long> percentiles) {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.percentiles = percentiles;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Long getMin() {
+        return min;
+    }
+
+    public Long getMax() {
+        return max;
+    }
+
+    public Double getMean() {
+        return mean;
+    }
+
+    public Map<String, Long> getPercentiles() {
+        return percentiles;
+    }
+}
@@ -0,0 +1,121 @@
+package pl.setlikD.restapi.threads;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admits at most {@code maxConcurrency} borrowed connections through a fair {@link Semaphore}.
+ * <p>
+ * With a request per virtual thread the number of callers is no longer capped by the servlet worker pool,
+ * so the wait queue is bounded too: when {@code maxWaiters} callers are already queued, or a caller waits
+ * longer than {@code acquireTimeout}, {@link #getConnection()} fails fast with a
+ * {@link SQLTransientConnectionException} instead of growing the queue in front of the pool.
+ * The permit is returned when the borrowed connection is closed.
+ */
+class BoundedDataSource extends DelegatingDataSource {
+
+    private final String name;
+    private final Semaphore permits;
+    private final int maxWaiters;
+    private final Duration acquireTimeout;
+
+    BoundedDataSource(String name, DataSource target, int maxConcurrency, int maxWaiters, Duration acquireTimeout) {
+        super(target);
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxWaiters = maxWaiters;
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releaseOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releaseOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    private void acquire() throws SQLException {
+        if (permits.getQueueLength() >= maxWaiters) {
+            throw new SQLTransientConnectionException(
+                    String.format("Too many callers waiting for a database connection:%s", maxWaiters));
+        }
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        }
+        if (!acquired) {
+            throw new SQLTransientConnectionException(
+                    String.format("Timed out after %s waiting for a database connection", acquireTimeout));
+        }
+    }
+
+    private Connection releaseOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(BoundedDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getTargetException();
+                            } finally {
+                                if (released.compareAndSet(false, true)) {
+                                    permits.release();
+                                }
+                            }
+                        default:
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getTargetException();
+                            }
+                    }
+                });
+    }
+}
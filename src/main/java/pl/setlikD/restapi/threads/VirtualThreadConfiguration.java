@@ -0,0 +1,108 @@
+package pl.setlikD.restapi.threads;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in virtual-thread request execution, enabled with {@code star.virtual-threads.enabled=true}.
+ * <p>
+ * Tomcat hands every request to a new virtual thread, so a request blocked on JDBC no longer holds one of a
+ * fixed number of workers. The connection pool is put behind a {@link BoundedDataSource} so that the extra
+ * concurrency turns into fast rejections once the pool is saturated, not into an unbounded queue in front of it.
+ * On a runtime without virtual threads Tomcat keeps its worker pool and only the bound is applied.
+ * Tomcat does not shut down an executor it was given, so the executors are shut down with the context,
+ * after the web server has stopped.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "star.virtual-threads", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(VirtualThreadProperties.class)
+class VirtualThreadConfiguration implements DisposableBean {
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfiguration.class.getName());
+    private final List<ExecutorService> requestExecutors = new CopyOnWriteArrayList<>();
+
+    @Bean
+    TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("http-vt-").orElse(null);
+            if (executor == null) {
+                LOGGER.warn("Virtual threads are not available on Java " + Runtime.version().feature()
+                        + ", requests keep running on the Tomcat worker pool");
+                return;
+            }
+            LOGGER.info("Running requests on virtual threads");
+            requestExecutors.add(executor);
+            protocolHandler.setExecutor(executor);
+        };
+    }
+
+    @Override
+    public void destroy() {
+        requestExecutors.forEach(ExecutorService::shutdown);
+        requestExecutors.clear();
+    }
+
+    @Bean
+    static BeanPostProcessor boundedDataSourcePostProcessor(ObjectProvider<VirtualThreadProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // bound the pools themselves, not the proxies and routers in front of them
+                if (!(bean instanceof DataSource) || bean instanceof DelegatingDataSource
+                        || bean instanceof AbstractRoutingDataSource) {
+                    return bean;
+                }
+                VirtualThreadProperties settings = properties.getObject();
+                int maxConcurrency = settings.getMaxDbConcurrency() != null
+                        ? settings.getMaxDbConcurrency()
+                        : poolSize((DataSource) bean);
+                LOGGER.info("Bounding " + beanName + " to " + maxConcurrency + " concurrent connections");
+                return new BoundedDataSource(beanName, (DataSource) bean, maxConcurrency, settings.getMaxDbWaiters(),
+                        settings.getDbAcquireTimeout());
+            }
+        };
+    }
+
+    @Bean
+    MeterBinder boundedDataSourceMetrics(ObjectProvider<DataSource> dataSources) {
+        return registry -> dataSources.orderedStream()
+                .filter(BoundedDataSource.class::isInstance)
+                .map(BoundedDataSource.class::cast)
+                .forEach(dataSource -> {
+                    Gauge.builder("star.db.permits.available", dataSource, BoundedDataSource::getAvailablePermits)
+                            .description("Connection permits left of star.virtual-threads.max-db-concurrency")
+                            .tag("name", dataSource.getName())
+                            .register(registry);
+                    Gauge.builder("star.db.permits.waiting", dataSource, BoundedDataSource::getWaiting)
+                            .description("Callers queued for a connection permit")
+                            .tag("name", dataSource.getName())
+                            .register(registry);
+                });
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        // Hikari only applies its default size once the pool is started
+        int size = dataSource instanceof HikariDataSource ? ((HikariDataSource) dataSource).getMaximumPoolSize() : 0;
+        return size > 0 ? size : DEFAULT_POOL_SIZE;
+    }
+}
@@ -0,0 +1,33 @@
+package pl.setlikD.restapi.threads;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Virtual-thread request execution, bound from the {@code star.virtual-threads.*} properties.
+ */
+@ConfigurationProperties("star.virtual-threads")
+@Getter
+@Setter
+class VirtualThreadProperties {
+
+    /**
+     * Whether servlet requests, and the repository calls they make, run on virtual threads.
+     */
+    private boolean enabled;
+    /**
+     * Maximum number of connections borrowed at the same time, defaults to the connection pool size.
+     */
+    private Integer maxDbConcurrency;
+    /**
+     * Maximum number of callers queued for a connection before new ones are rejected.
+     */
+    private int maxDbWaiters = 1000;
+    /**
+     * How long a caller waits for a connection before it is rejected.
+     */
+    private Duration dbAcquireTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,35 @@
+package pl.setlikD.restapi.threads;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Looks up the virtual thread API reflectively, so the application still compiles for and runs on
+ * runtimes without it. Virtual threads are available as a final feature from Java 21.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @param namePrefix prefix of the thread names, followed by a counter
+     * @return an executor starting a new virtual thread for each task, empty if the runtime has no virtual threads
+     */
+    static Optional<ExecutorService> newThreadPerTaskExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return Optional.of((ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory));
+        } catch (ReflectiveOperationException e) {
+            // before Java 19, or the preview API of Java 19/20 without --enable-preview
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package pl.setlikD.restapi.web;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary encodings for clients sending {@code Accept: application/cbor} or {@code application/x-jackson-smile}.
+ * <p>
+ * Spring MVC registers both converters on its own when the data formats are on the classpath, but with a plain
+ * ObjectMapper. These beans replace them with mappers built from Spring Boot's {@link Jackson2ObjectMapperBuilder},
+ * so the binary formats share the {@code spring.jackson.*} settings and the registered serializers with JSON.
+ */
+@Configuration
+class BinaryFormatConfiguration {
+
+    @Bean
+    MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
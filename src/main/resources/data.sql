@@ -1,6 +1,6 @@
-insert into star(name,distance) values ('STAR_1', 1);
-insert into star(name,distance) values ('STAR_2', 3);
-insert into star(name,distance) values ('STAR_3', 5);
-insert into star(name,distance) values ('STAR_4', 10);
-insert into star(name,distance) values ('STAR_55', 42);
-insert into star(name,distance) values ('STAR_67', 133);
+insert into star(id,name,distance) values (1, 'STAR_1', 1);
+insert into star(id,name,distance) values (2, 'STAR_2', 3);
+insert into star(id,name,distance) values (3, 'STAR_3', 5);
+insert into star(id,name,distance) values (4, 'STAR_4', 10);
+insert into star(id,name,distance) values (5, 'STAR_55', 42);
+insert into star(id,name,distance) values (6, 'STAR_67', 133);
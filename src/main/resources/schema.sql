@@ -1,5 +1,15 @@
+-- pooled-lo blocks of 50 ids, starting after the ids seeded by data.sql
+create sequence star_seq start with 7 increment by 50;
+
 create table star(
-    id       bigint       not null auto_increment primary key,
+    id       bigint       not null primary key,
     name     varchar(255) not null,
-    distance long not null
-);
\ No newline at end of file
+    distance long not null,
+    version  bigint       default 0 not null
+);
+
+-- (distance, id) in both directions: H2 does not scan an index backwards, and the near/range queries read them
+-- already sorted, stopping after the requested number of rows
+create index star_distance_idx on star(distance, id);
+create index star_distance_desc_idx on star(distance desc, id desc);
+create unique index star_name_distance_uq on star(name, distance);
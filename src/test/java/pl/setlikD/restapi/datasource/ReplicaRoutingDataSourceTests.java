@@ -0,0 +1,124 @@
+package pl.setlikD.restapi.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ReplicaRoutingDataSourceTests {
+
+    private static ReplicaRoutingDataSource prepareDataSource(Duration maxLag) {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(mock(DataSource.class), mock(DataSource.class), maxLag);
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+
+    private static void beginTransaction(boolean readOnly) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    private static void commitTransaction() {
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_COMMITTED);
+        TransactionSynchronizationManager.clear();
+    }
+
+    /**
+     * Routes a read-only transaction of another request, on its own thread.
+     */
+    private static Object readOnlyRoute(ReplicaRoutingDataSource dataSource) {
+        return CompletableFuture.supplyAsync(() -> {
+            beginTransaction(true);
+            try {
+                return dataSource.determineCurrentLookupKey();
+            } finally {
+                TransactionSynchronizationManager.clear();
+            }
+        }).join();
+    }
+
+    @AfterEach
+    void clearTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    @DisplayName("JUnit test for ReplicaRoutingDataSource outside of a transaction")
+    @Test
+    public void givenNoTransaction_whenRouted_thenPrimaryIsUsedWithoutTrackingWrite() {
+        //given
+        ReplicaRoutingDataSource dataSource = prepareDataSource(Duration.ofMinutes(1));
+        //when
+        Object route = dataSource.determineCurrentLookupKey();
+        beginTransaction(true);
+        Object readRoute = dataSource.determineCurrentLookupKey();
+        //then
+        assertThat(route).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+        assertThat(readRoute).isEqualTo(ReplicaRoutingDataSource.Route.REPLICA);
+    }
+
+    @DisplayName("JUnit test for ReplicaRoutingDataSource with read-only and read-write transactions")
+    @Test
+    public void givenTransactions_whenRouted_thenWritesGoToPrimaryAndReadsToReplica() {
+        //given
+        ReplicaRoutingDataSource dataSource = prepareDataSource(Duration.ofMinutes(1));
+        //when
+        beginTransaction(true);
+        Object readRoute = dataSource.determineCurrentLookupKey();
+        commitTransaction();
+        beginTransaction(false);
+        Object writeRoute = dataSource.determineCurrentLookupKey();
+        //then
+        assertThat(readRoute).isEqualTo(ReplicaRoutingDataSource.Route.REPLICA);
+        assertThat(writeRoute).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(1);
+        dataSource.determineCurrentLookupKey();
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(1);
+        commitTransaction();
+        assertThat(TransactionSynchronizationManager.hasResource(dataSource)).isFalse();
+    }
+
+    @DisplayName("JUnit test for ReplicaRoutingDataSource reads within the maximum lag of a write")
+    @Test
+    public void givenWriteInProgress_whenReadOnlyTransactionRouted_thenPrimaryIsUsedBeforeAndAfterCommit() {
+        //given
+        ReplicaRoutingDataSource dataSource = prepareDataSource(Duration.ofMinutes(1));
+        beginTransaction(false);
+        dataSource.determineCurrentLookupKey();
+        //when
+        Object concurrentRead = readOnlyRoute(dataSource);
+        commitTransaction();
+        Object laterRead = readOnlyRoute(dataSource);
+        //then
+        assertThat(concurrentRead).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+        assertThat(laterRead).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+    }
+
+    @DisplayName("JUnit test for ReplicaRoutingDataSource reads after the maximum lag of a write")
+    @Test
+    public void givenWriteOlderThanMaxLag_whenReadOnlyTransactionRouted_thenReplicaIsUsed() {
+        //given
+        ReplicaRoutingDataSource dataSource = prepareDataSource(Duration.ZERO);
+        beginTransaction(false);
+        dataSource.determineCurrentLookupKey();
+        commitTransaction();
+        //when
+        Object route = readOnlyRoute(dataSource);
+        //then
+        assertThat(route).isEqualTo(ReplicaRoutingDataSource.Route.REPLICA);
+    }
+}
@@ -0,0 +1,73 @@
+package pl.setlikD.restapi.datasource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WarmDatabaseInitializerTests {
+
+    @TempDir
+    Path directory;
+
+    private final DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:warm-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    private static SqlInitializationProperties prepareProperties() {
+        SqlInitializationProperties properties = new SqlInitializationProperties();
+        properties.setMode(DatabaseInitializationMode.ALWAYS);
+        return properties;
+    }
+
+    @DisplayName("JUnit test for WarmDatabaseInitializer seeding once")
+    @Test
+    public void givenEmptyDatabase_whenInitializedTwice_thenSeededOnlyTheFirstTime() {
+        //given
+        boolean seeded = new WarmDatabaseInitializer(dataSource, prepareProperties()).initializeDatabase();
+        jdbcTemplate.update("delete from star where id = 1");
+        int count = jdbcTemplate.queryForObject("select count(*) from star", Integer.class);
+        //when
+        boolean initialized = new WarmDatabaseInitializer(dataSource, prepareProperties()).initializeDatabase();
+        //then
+        assertThat(seeded).isTrue();
+        assertThat(initialized).isFalse();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from star", Integer.class)).isEqualTo(count);
+    }
+
+    @DisplayName("JUnit test for WarmDatabaseInitializer with changed scripts")
+    @Test
+    public void givenScriptsChangedSinceSeeding_whenInitialized_thenThrowsException() throws IOException {
+        //given
+        assertThat(new WarmDatabaseInitializer(dataSource, prepareProperties()).initializeDatabase()).isTrue();
+        Path data = Files.writeString(directory.resolve("data.sql"), "insert into star(id,name,distance) values (9, 'STAR_9', 9);");
+        SqlInitializationProperties properties = prepareProperties();
+        properties.setDataLocations(List.of("file:" + data));
+        //when+then
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new WarmDatabaseInitializer(dataSource, properties).initializeDatabase());
+        assertThat(e.getMessage()).contains("seeded from other SQL scripts");
+        assertThat(jdbcTemplate.queryForObject("select count(*) from star where id = 9", Integer.class)).isZero();
+    }
+
+    @DisplayName("JUnit test for WarmDatabaseInitializer with a database seeded without the marker")
+    @Test
+    public void givenStarTableWithoutMarker_whenInitialized_thenThrowsException() {
+        //given
+        jdbcTemplate.execute("create table star(id bigint primary key)");
+        //when+then
+        assertThrows(IllegalStateException.class, () -> new WarmDatabaseInitializer(dataSource, prepareProperties()).initializeDatabase());
+    }
+}
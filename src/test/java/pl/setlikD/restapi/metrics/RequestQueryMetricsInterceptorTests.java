@@ -0,0 +1,68 @@
+package pl.setlikD.restapi.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestQueryMetricsInterceptorTests {
+
+    private final HibernateRequestCounters counters = new HibernateRequestCounters();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestQueryMetricsInterceptor interceptor = new RequestQueryMetricsInterceptor(counters, meterRegistry);
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private static MockHttpServletRequest prepareRequest(String pattern) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/stars");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        return request;
+    }
+
+    @DisplayName("JUnit test for RequestQueryMetricsInterceptor recording a request")
+    @Test
+    public void givenStatementsAndLoads_whenRequestCompletes_thenCountsAreRecorded() {
+        //given
+        MockHttpServletRequest request = prepareRequest("/api/v1/stars");
+        interceptor.preHandle(request, response, null);
+        counters.inspect("select 1");
+        counters.inspect("select 2");
+        counters.onLoad(new Object(), 1L, null, null, null);
+        //when
+        interceptor.afterCompletion(request, response, null, null);
+        counters.inspect("select 3");
+        //then
+        DistributionSummary statements = meterRegistry.get("star.request.statements").tag("uri", "/api/v1/stars").summary();
+        DistributionSummary entityLoads = meterRegistry.get("star.request.entity.loads").tag("method", "GET").summary();
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(statements.totalAmount()).isEqualTo(2);
+        assertThat(entityLoads.totalAmount()).isEqualTo(1);
+        assertThat(counters.end()).isNull();
+    }
+
+    @DisplayName("JUnit test for RequestQueryMetricsInterceptor with an asynchronous request")
+    @Test
+    public void givenAsyncRequest_whenHandedOver_thenCountingStopsAndNothingIsRecorded() {
+        //given
+        MockHttpServletRequest request = prepareRequest("/api/v1/stars/changes");
+        interceptor.preHandle(request, response, null);
+        counters.inspect("select 1");
+        //when
+        interceptor.afterConcurrentHandlingStarted(request, response, null);
+        counters.inspect("select 2");
+        MockHttpServletRequest asyncDispatch = prepareRequest("/api/v1/stars/changes");
+        asyncDispatch.setDispatcherType(DispatcherType.ASYNC);
+        interceptor.preHandle(asyncDispatch, response, null);
+        counters.inspect("select 3");
+        interceptor.afterCompletion(asyncDispatch, response, null, null);
+        //then
+        assertThat(counters.end()).isNull();
+        assertThat(meterRegistry.find("star.request.statements").summary()).isNull();
+    }
+}
@@ -1,28 +1,48 @@
 package pl.setlikD.restapi.star;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest
+@WebMvcTest(properties = {
+        "star.admission.classes.analytics.initial-limit=1",
+        "star.admission.classes.analytics.max-limit=1",
+        "star.admission.classes.analytics.max-queue=0"})
 class StarControllerTests {
 
     @Autowired
@@ -65,6 +85,41 @@ class StarControllerTests {
                         is(star.getDistance()), Long.class));
     }
 
+    @DisplayName("Controller JUnit test for createStars batch method")
+    @Test
+    public void givenStarsBatch_whenCreateStars_thenReturnResultOfEveryItem() throws Exception {
+        //given
+        List<StarDto> batch = List.of(new StarDto("STAR_100", 42), new StarDto("STAR_100", 42));
+        given(starService.createStars(anyList()))
+                .willReturn(List.of(StarBatchResult.created(0, 7L), StarBatchResult.duplicate(1)));
+        //when
+        ResultActions response = mockMvc.perform(post("/api/v1/stars/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)));
+        //then
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(2)))
+                .andExpect(jsonPath("$[0].status", is("CREATED")))
+                .andExpect(jsonPath("$[0].id", is(7)))
+                .andExpect(jsonPath("$[1].status", is("DUPLICATE")));
+    }
+
+    @DisplayName("Controller JUnit test for createStars batch method racing a concurrent insert")
+    @Test
+    public void givenConcurrentDuplicate_whenCreateStars_thenReturnConflict() throws Exception {
+        //given
+        given(starService.createStars(anyList()))
+                .willThrow(new ResourceNotFoundException("A Star of the batch was created concurrently, the batch was not saved"));
+        //when
+        ResultActions response = mockMvc.perform(post("/api/v1/stars/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(new StarDto("STAR_100", 42)))));
+        //then
+        response.andDo(print())
+                .andExpect(status().isConflict());
+    }
+
     @DisplayName("Controller JUnit test for getAllStarts method")
     @Test
     public void givenListOfStars_whenGetAllStars_thenReturnStarsList() throws Exception {
@@ -81,18 +136,110 @@ class StarControllerTests {
 
     }
 
+    @DisplayName("Controller JUnit test for getAllStarts method with a matching ETag")
+    @Test
+    public void givenUnchangedCatalog_whenGetAllStars_thenReturn304WithoutReadingStars() throws Exception {
+        //given
+        given(starService.getCatalogVersion()).willReturn("k1-7");
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars").header("If-None-Match", "\"k1-7\""));
+        //then
+        response.andExpect(status().isNotModified())
+                .andDo(print())
+                .andExpect(header().string("ETag", "W/\"k1-7\""));
+        verify(starService, never()).getAllStarts();
+    }
+
+    @DisplayName("Controller JUnit test for findClosestStars method with a stale ETag")
+    @Test
+    public void givenChangedCatalog_whenFindClosestStars_thenReturnStarsWithNewETag() throws Exception {
+        //given
+        given(starService.getCatalogVersion()).willReturn("k1-8");
+        given(starService.findClosestStars(1)).willReturn(List.of(new Star("STAR_1", 1)));
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/closest/{size}", 1).header("If-None-Match", "\"k1-7\""));
+        //then
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(header().string("ETag", "W/\"k1-8\""))
+                .andExpect(jsonPath("$.size()", is(1)));
+    }
+
+    @DisplayName("Controller JUnit test for areNamesUnique method with a matching ETag")
+    @Test
+    public void givenUnchangedCatalog_whenAreNamesUnique_thenReturn304() throws Exception {
+        //given
+        given(starService.getCatalogVersion()).willReturn("k1-7");
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/unique").header("If-None-Match", "\"k1-7\""));
+        //then
+        response.andExpect(status().isNotModified())
+                .andDo(print());
+        verify(starService, never()).areNamesUnique();
+    }
+
+    @DisplayName("Controller JUnit test for getStars method in cursor mode")
+    @Test
+    public void givenLimitAndCursor_whenGetStars_thenReturnPageWithNextCursor() throws Exception {
+        //given
+        List<Star> page = List.of(new Star(11L, "STAR_11", 11), new Star(12L, "STAR_12", 12));
+        given(starService.getStarsPage(10L, 2)).willReturn(page);
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars?limit=2&after=10"));
+        //then
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.size()", is(2)))
+                .andExpect(header().string(StarController.NEXT_CURSOR_HEADER, "12"))
+                .andExpect(header().string("Link", "<http://localhost/api/v1/stars?limit=2&after=12>; rel=\"next\""));
+    }
+
+    @DisplayName("Controller JUnit test for getStars method on the last page")
+    @Test
+    public void givenLastPage_whenGetStars_thenReturnPageWithoutNextCursor() throws Exception {
+        //given
+        given(starService.getStarsPage(12L, 2)).willReturn(List.of(new Star(13L, "STAR_13", 13)));
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars").param("limit", "2").param("after", "12"));
+        //then
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(header().doesNotExist(StarController.NEXT_CURSOR_HEADER));
+    }
+
+    @DisplayName("Controller JUnit test for exportStars method")
+    @Test
+    public void givenStars_whenExportStars_thenReturnNewlineDelimitedJson() throws Exception {
+        //given
+        willAnswer(invocation -> {
+            Consumer<Star> writer = invocation.getArgument(0);
+            writer.accept(new Star(1L, "STAR_1", 1, 0L));
+            writer.accept(new Star(2L, "STAR_2", 2, 0L));
+            return 2L;
+        }).given(starService).exportStars(any());
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/export"));
+        //then
+        response.andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1,\"name\":\"STAR_1\",\"distance\":1,\"version\":0}\n"
+                        + "{\"id\":2,\"name\":\"STAR_2\",\"distance\":2,\"version\":0}\n"));
+    }
+
     @DisplayName("Controller JUnit test for getStarById method")
     @Test
     public void givenStarId_whenGetStarById_thenReturnStarObject() throws Exception {
         //given
         Long starId = 1L;
-        Star star = Star.builder().name("STAR_122").distance(32).build();
+        Star star = Star.builder().name("STAR_122").distance(32).version(5L).build();
         given(starService.getStarById(starId)).willReturn(Optional.of(star));
         //when
         ResultActions response = mockMvc.perform(get("/api/v1/stars/{id}", starId));
         //then
         response.andExpect(status().isOk())
                 .andDo(print())
+                .andExpect(header().string("ETag", "\"5\""))
                 .andExpect(jsonPath("$.name", is(star.getName())))
                 .andExpect(jsonPath("$.distance", is(star.getDistance()), Long.class));
     }
@@ -115,11 +262,12 @@ class StarControllerTests {
     public void givenUpdatedStar_whenUpdateStar_thenReturnUpdateStarObject() throws Exception {
         //given
         Long starId = 1L;
-        Star savedStar = Star.builder().name("STAR_122").distance(32).build();
         Star updatedStar = Star.builder().name("Star_QWERTy").distance(67).build();
-        given(starService.getStarById(starId)).willReturn(Optional.of(savedStar));
-        given(starService.updateStar(any(Star.class)))
-                .willAnswer((invocation) -> invocation.getArgument(0));
+        given(starService.updateStar(eq(starId), any(StarDto.class)))
+                .willAnswer((invocation) -> {
+                    StarDto starDto = invocation.getArgument(1);
+                    return Optional.of(new Star(starId, starDto.getName(), starDto.getDistance()));
+                });
         //when
         ResultActions response = mockMvc.perform(put("/api/v1/stars/{id}", starId)
                 .contentType(MediaType.APPLICATION_JSON)
@@ -137,9 +285,7 @@ class StarControllerTests {
         //given
         Long starId = 1L;
         Star updatedStar = Star.builder().name("Star_QWERTy").distance(67).build();
-        given(starService.getStarById(starId)).willReturn(Optional.empty());
-        given(starService.updateStar(any(Star.class)))
-                .willAnswer((invocation) -> invocation.getArgument(0));
+        given(starService.updateStar(eq(starId), any(StarDto.class))).willReturn(Optional.empty());
         //when
         ResultActions response = mockMvc.perform(put("/api/v1/stars/{id}", starId)
                 .contentType(MediaType.APPLICATION_JSON)
@@ -149,14 +295,63 @@ class StarControllerTests {
                 .andDo(print());
     }
 
+    @DisplayName("Controller JUnit test for patchStar method")
+    @Test
+    public void givenPartialStarAndVersion_whenPatchStar_thenReturn204WithNewVersion() throws Exception {
+        //given
+        Long starId = 1L;
+        given(starService.patchStar(eq(starId), any(StarPatchDto.class), eq(3L)))
+                .willReturn(StarService.PatchResult.UPDATED);
+        //when
+        ResultActions response = mockMvc.perform(patch("/api/v1/stars/{id}", starId)
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"distance\":67}"));
+        //then
+        response.andExpect(status().isNoContent())
+                .andDo(print())
+                .andExpect(header().string("ETag", "\"4\""));
+    }
+
+    @DisplayName("Controller JUnit test for patchStar method with a stale version")
+    @Test
+    public void givenStaleVersion_whenPatchStar_thenReturn412() throws Exception {
+        //given
+        Long starId = 1L;
+        given(starService.patchStar(eq(starId), any(StarPatchDto.class), eq(2L)))
+                .willReturn(StarService.PatchResult.VERSION_CONFLICT);
+        //when
+        ResultActions response = mockMvc.perform(patch("/api/v1/stars/{id}", starId)
+                .header("If-Match", "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Star_QWERTy\"}"));
+        //then
+        response.andExpect(status().isPreconditionFailed())
+                .andDo(print());
+    }
+
+    @DisplayName("Controller JUnit test for patchStar method negative scenario")
+    @Test
+    public void givenMissingStar_whenPatchStar_thenReturn404() throws Exception {
+        //given
+        Long starId = 1L;
+        given(starService.patchStar(eq(starId), any(StarPatchDto.class), isNull()))
+                .willReturn(StarService.PatchResult.NOT_FOUND);
+        //when
+        ResultActions response = mockMvc.perform(patch("/api/v1/stars/{id}", starId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Star_QWERTy\"}"));
+        //then
+        response.andExpect(status().isNotFound())
+                .andDo(print());
+    }
+
     @DisplayName("Controller JUnit test for deleteStar method")
     @Test
     public void givenStarId_whenDeleteStar_thenReturn200() throws Exception {
         //given
         Long starId = 1L;
-        Star savedStar = Star.builder().name("STAR_122").distance(32).build();
-        given(starService.getStarById(starId)).willReturn(Optional.of(savedStar));
-        willDoNothing().given(starService).deleteStar(starId);
+        given(starService.deleteStar(starId)).willReturn(true);
         //when
         ResultActions response = mockMvc.perform(delete("/api/v1/stars/{id}", starId));
         //then
@@ -164,6 +359,55 @@ class StarControllerTests {
                 .andDo(print());
     }
 
+    @DisplayName("Controller JUnit test for deleteStar method negative scenario")
+    @Test
+    public void givenInvalidStarId_whenDeleteStar_thenReturn404() throws Exception {
+        //given
+        Long starId = 1L;
+        given(starService.deleteStar(starId)).willReturn(false);
+        //when
+        ResultActions response = mockMvc.perform(delete("/api/v1/stars/{id}", starId));
+        //then
+        response.andExpect(status().isNotFound())
+                .andDo(print());
+    }
+
+    @DisplayName("Controller JUnit test for deleteStars method by ids")
+    @Test
+    public void givenIds_whenDeleteStars_thenReturnDeletedCount() throws Exception {
+        //given
+        given(starService.deleteStars(List.of(1L, 2L, 3L))).willReturn(2);
+        //when
+        ResultActions response = mockMvc.perform(delete("/api/v1/stars").param("ids", "1,2,3"));
+        //then
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(content().string("2 stars deleted successfully!."));
+    }
+
+    @DisplayName("Controller JUnit test for deleteStars method by distance")
+    @Test
+    public void givenMaxDistance_whenDeleteStars_thenReturnDeletedCount() throws Exception {
+        //given
+        given(starService.deleteStarsByDistance(Long.MIN_VALUE, 100L)).willReturn(7);
+        //when
+        ResultActions response = mockMvc.perform(delete("/api/v1/stars").param("maxDistance", "100"));
+        //then
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(content().string("7 stars deleted successfully!."));
+    }
+
+    @DisplayName("Controller JUnit test for deleteStars method without criteria")
+    @Test
+    public void givenNoCriteria_whenDeleteStars_thenReturn400() throws Exception {
+        //when
+        ResultActions response = mockMvc.perform(delete("/api/v1/stars"));
+        //then
+        response.andExpect(status().isBadRequest())
+                .andDo(print());
+    }
+
     @DisplayName("Controller JUnit test for areNamesUnique method")
     @Test
     public void givenListOfStars_whenAreNamesUnique_thenReturnTrueOrFalse() throws Exception {
@@ -185,22 +429,78 @@ class StarControllerTests {
 
     }
 
+    @DisplayName("Controller JUnit test for getCacheStats method")
+    @Test
+    public void givenCacheStats_whenGetCacheStats_thenReturnCounters() throws Exception {
+        //given
+        given(starService.getCacheStats()).willReturn(new LruCache.Stats(95, 5, 1, 42));
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/cache/stats"));
+        //then
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.hits", is(95)))
+                .andExpect(jsonPath("$.misses", is(5)))
+                .andExpect(jsonPath("$.evictions", is(1)))
+                .andExpect(jsonPath("$.size", is(42)));
+    }
+
+    @DisplayName("Controller JUnit test for findDuplicateNames method")
+    @Test
+    public void givenDuplicatedNames_whenFindDuplicateNames_thenReturnNamesList() throws Exception {
+        //given
+        given(starService.findDuplicateNames()).willReturn(List.of("STAR_1", "STAR_2"));
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/duplicates"));
+        //then
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.size()", is(2)))
+                .andExpect(jsonPath("$[0]", is("STAR_1")));
+    }
+
     @DisplayName("Controller JUnit test findClosestStars for method")
     @Test
     public void givenListOfStars_whenFindClosestStars_thenReturnStarsListWithSizeIndicated() throws Exception {
         //given
         int size = 3;
-        List<Star> list = List.copyOf(prepirMockData());
-        List<Star> closestStars = starService.findClosestStars(list, size);
-        given(starService.findClosestStars(list, size)).willReturn(closestStars);
+        List<Star> closestStars = List.of(new Star("STAR_1", 1), new Star("STAR_2", 2), new Star("STAR_3", 3));
+        given(starService.findClosestStars(size)).willReturn(closestStars);
         //when
         ResultActions response = mockMvc.perform(get("/api/v1/stars/closest/{size}", size));
         //then
         response.andExpect(status().isOk())
                 .andDo(print())
                 .andExpect(jsonPath("$.size()",
-                        is(closestStars.size())));
+                        is(closestStars.size())))
+                .andExpect(jsonPath("$[0].name", is("STAR_1")));
+
+    }
+
+    @DisplayName("Controller JUnit test for findClosestStars method with a CBOR response")
+    @Test
+    public void givenCborAccepted_whenFindClosestStars_thenReturnCborEncodedStars() throws Exception {
+        //given
+        given(starService.getCatalogVersion()).willReturn("k1-7");
+        given(starService.findClosestStars(2)).willReturn(List.of(new Star(1L, "STAR_1", 1, 0L), new Star(2L, "STAR_2", 2, 3L)));
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/closest/{size}", 2).accept("application/cbor"));
+        //then
+        response.andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"));
+        JsonNode stars = new ObjectMapper(new CBORFactory()).readTree(response.andReturn().getResponse().getContentAsByteArray());
+        assertThat(stars.size()).isEqualTo(2);
+        assertThat(stars.get(1).get("name").asText()).isEqualTo("STAR_2");
+        assertThat(stars.get(1).get("version").asLong()).isEqualTo(3L);
+    }
 
+    @DisplayName("JUnit test for the Star serializer")
+    @Test
+    public void givenStars_whenSerialized_thenIdIsAlwaysWrittenAndVersionOnlyWhenSet() throws Exception {
+        assertThat(objectMapper.writeValueAsString(new Star("STAR_1", 1)))
+                .isEqualTo("{\"id\":null,\"name\":\"STAR_1\",\"distance\":1}");
+        assertThat(objectMapper.writeValueAsString(new Star(7L, "STAR_7", 42, 2L)))
+                .isEqualTo("{\"id\":7,\"name\":\"STAR_7\",\"distance\":42,\"version\":2}");
     }
 
     @DisplayName("Controller JUnit test filterByRegExpr for method")
@@ -208,9 +508,10 @@ class StarControllerTests {
     public void givenStarsList_whenFilterByRegExpr_thenReturnStarsListMatchedToRegex() throws Exception {
         //given
         String regex = "[A-Z]+_[0-9]{1}";
-        List<Star> list = List.copyOf(prepirMockData());
-        List<Star> filterByRegExpr = starService.filterByRegExpr(list, regex);
-        given(starService.filterByRegExpr(list, regex)).willReturn(filterByRegExpr);
+        List<Star> filterByRegExpr = prepirMockData().stream()
+                .filter(s -> s.getName().matches(regex))
+                .collect(Collectors.toList());
+        given(starService.filterByRegExpr(regex)).willReturn(filterByRegExpr);
         //when
         ResultActions response = mockMvc.perform(get("/api/v1/stars/regex").param("regex", regex));
         //then
@@ -220,6 +521,164 @@ class StarControllerTests {
                         is(filterByRegExpr.size())));
     }
 
+    @DisplayName("Controller JUnit test for searchStars method")
+    @Test
+    public void givenPrefix_whenSearchStars_thenReturnMatchingStars() throws Exception {
+        //given
+        List<Star> matches = List.of(new Star(12L, "STAR_12", 12), new Star(120L, "STAR_120", 120));
+        given(starService.searchByName("STAR_12", null, 10)).willReturn(matches);
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/search").param("prefix", "STAR_12"));
+        //then
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(2)))
+                .andExpect(jsonPath("$[1].name", is("STAR_120")));
+    }
+
+    @DisplayName("Controller JUnit test for searchStars method without prefix and contains")
+    @Test
+    public void givenNoSearchText_whenSearchStars_thenReturnBadRequest() throws Exception {
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/search").param("limit", "5"));
+        //then
+        response.andExpect(status().isBadRequest());
+        verifyNoInteractions(starService);
+    }
+
+    @DisplayName("Controller JUnit test for searchStars method with a short contains and no prefix")
+    @Test
+    public void givenShortContainsWithoutPrefix_whenSearchStars_thenReturnBadRequest() throws Exception {
+        //given
+        given(starService.searchByName("STAR", "AR", 10)).willReturn(List.of(new Star(1L, "STAR", 1)));
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/search").param("contains", "AR"));
+        ResultActions withPrefix = mockMvc.perform(get("/api/v1/stars/search").param("prefix", "STAR").param("contains", "AR"));
+        //then
+        response.andExpect(status().isBadRequest());
+        withPrefix.andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(1)));
+    }
+
+    @DisplayName("Controller JUnit test for findNearestStars method")
+    @Test
+    public void givenDistance_whenFindNearestStars_thenReturnNearestStars() throws Exception {
+        //given
+        given(starService.findNearestStars(100, 2)).willReturn(List.of(new Star(1L, "A", 100), new Star(4L, "D", 98)));
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/near").param("distance", "100").param("k", "2"));
+        //then
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(2)))
+                .andExpect(jsonPath("$[1].distance", is(98)));
+    }
+
+    @DisplayName("Controller JUnit test for findStarsInRange method")
+    @Test
+    public void givenRange_whenFindStarsInRange_thenReturnStarsInRange() throws Exception {
+        //given
+        given(starService.findStarsInRange(10, Long.MAX_VALUE, 100)).willReturn(List.of(new Star(1L, "A", 10)));
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/range").param("min", "10"));
+        //then
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name", is("A")));
+    }
+
+    @DisplayName("Controller JUnit test for findStarsInRange method with min greater than max")
+    @Test
+    public void givenInvertedRange_whenFindStarsInRange_thenReturnBadRequest() throws Exception {
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/range").param("min", "20").param("max", "10"));
+        //then
+        response.andExpect(status().isBadRequest());
+        verifyNoInteractions(starService);
+    }
+
+    @DisplayName("Controller JUnit test for admission control of the analytics endpoints")
+    @Test
+    public void givenAnalyticsRequestRunning_whenAnotherAnalyticsRequest_thenRejectItButNotCrud() throws Exception {
+        //given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        given(starService.areNamesUnique()).willAnswer(invocation -> {
+            started.countDown();
+            return finish.await(10, TimeUnit.SECONDS);
+        });
+        given(starService.getStarById(1L)).willReturn(Optional.of(new Star(1L, "SUN", 0)));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ResultActions> running = executor.submit(() -> mockMvc.perform(get("/api/v1/stars/unique")));
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+            //when
+            ResultActions rejected = mockMvc.perform(get("/api/v1/stars/closest/3"));
+            ResultActions crud = mockMvc.perform(get("/api/v1/stars/1"));
+            //then
+            rejected.andExpect(status().isTooManyRequests())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+            crud.andExpect(status().isOk());
+            finish.countDown();
+            running.get(10, TimeUnit.SECONDS).andExpect(status().isOk())
+                    .andExpect(content().string("true"));
+            verify(starService, never()).findClosestStars(3);
+        } finally {
+            finish.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @DisplayName("Controller JUnit test for streamChanges method")
+    @Test
+    public void givenLastEventId_whenStreamChanges_thenSendChangesAsServerSentEvents() throws Exception {
+        //given
+        StarChangeFeed.Subscriber[] subscriber = new StarChangeFeed.Subscriber[1];
+        given(starService.subscribeToChanges(eq("run-5"), any())).willAnswer(invocation -> {
+            subscriber[0] = invocation.getArgument(1);
+            return Optional.of((StarChangeFeed.Subscription) () -> {
+            });
+        });
+        //when
+        MvcResult result = mockMvc.perform(get("/api/v1/stars/changes").header("Last-Event-ID", "run-5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        subscriber[0].send(StarChange.created(7L, "SUN", 0).withSequence("run", 6));
+        subscriber[0].send(StarChange.updated(7L, null, 1L).withSequence("run", 7));
+        subscriber[0].complete();
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(
+                        "id:run-6\nevent:CREATED\ndata:{\"sequence\":6,\"type\":\"CREATED\",\"id\":7,\"name\":\"SUN\",\"distance\":0}\n\n" +
+                        "id:run-7\nevent:UPDATED\ndata:{\"sequence\":7,\"type\":\"UPDATED\",\"id\":7,\"distance\":1}\n\n"));
+    }
+
+    @DisplayName("Controller JUnit test for streamChanges method with too many subscribers")
+    @Test
+    public void givenTooManySubscribers_whenStreamChanges_thenReturnServiceUnavailable() throws Exception {
+        //given
+        given(starService.subscribeToChanges(isNull(), any())).willReturn(Optional.empty());
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/changes"));
+        //then
+        response.andExpect(status().isServiceUnavailable());
+    }
+
+    @DisplayName("Controller JUnit test for getDistanceStats method")
+    @Test
+    public void givenStats_whenGetDistanceStats_thenReturnStatsJson() throws Exception {
+        //given
+        given(starService.getDistanceStats()).willReturn(new StarStats(3, 4L, 40L, 20.0, Map.of("p50", 16L, "p99", 40L)));
+        //when
+        ResultActions response = mockMvc.perform(get("/api/v1/stars/stats"));
+        //then
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", is(3)))
+                .andExpect(jsonPath("$.min", is(4)))
+                .andExpect(jsonPath("$.max", is(40)))
+                .andExpect(jsonPath("$.mean", is(20.0)))
+                .andExpect(jsonPath("$.percentiles.p50", is(16)));
+    }
+
 
 
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package pl.setlikD.restapi.star;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StarJsonSerializerTests {
+
+    private final ObjectMapper defaultMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new SimpleModule().addSerializer(new StarJsonSerializer()));
+
+    @DisplayName("JUnit test for StarJsonSerializer against the default bean serialization")
+    @Test
+    public void givenStars_whenSerialized_thenOutputMatchesDefaultMapping() throws JsonProcessingException {
+        //given
+        List<Star> stars = List.of(
+                new Star(1L, "STAR_1", 1, 0L),
+                new Star(2L, "STAR \"2\"\nż", -Long.MAX_VALUE, 7L),
+                new Star(3L, null, 0, null),
+                new Star("STAR_4", Long.MIN_VALUE));
+        //when
+        String json = objectMapper.writeValueAsString(stars);
+        //then
+        assertThat(json).isEqualTo(defaultMapper.writeValueAsString(stars));
+        Star[] readStars = objectMapper.readValue(json, Star[].class);
+        assertThat(readStars).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(stars);
+    }
+}
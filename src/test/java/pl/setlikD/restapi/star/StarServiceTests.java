@@ -1,23 +1,39 @@
 package pl.setlikD.restapi.star;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
+import org.hibernate.exception.ConstraintViolationException;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.withinPercentage;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,10 +41,14 @@ class StarServiceTests {
 
     @Mock
     private StarRepository starRepository;
-    @InjectMocks
     private StarService starService;
     private Star star;
 
+    @BeforeEach
+    public void setUp() {
+        starService = new StarService(starRepository, new StarProperties());
+    }
+
     private List<Star> prepirMockData() {
         List<Integer> numbers = IntStream.range(1, 10000)
                 .boxed()
@@ -45,9 +65,7 @@ class StarServiceTests {
     public void givenStarObj_whenSaveStar_thenReturnStarObject() {
         // given
         star = Star.builder().id(112L).name("STAR_121").distance(22).build();
-        given(starRepository.findByNameAndDistance(star.getName(), star.getDistance()))
-                .willReturn(Optional.empty());
-        given(starRepository.save(star)).willReturn(star);
+        given(starRepository.saveAndFlush(star)).willReturn(star);
         //when
         Star savedStar = starService.createStar(star);
         //then
@@ -59,24 +77,97 @@ class StarServiceTests {
     public void givenExistingStar_whenSaveStar_thenThrowsException() {
         //given
         star = Star.builder().id(667L).name("STAR_171").distance(202).build();
-        given(starRepository.findByNameAndDistance(star.getName(), star.getDistance()))
-                .willReturn(Optional.of(star));
+        given(starRepository.saveAndFlush(star)).willThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException(), "PUBLIC.STAR_NAME_DISTANCE_UQ_INDEX_2")));
         //when
         org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class, () -> {
             starService.createStar(star);
         });
+    }
+
+    @DisplayName("JUnit test for createStar method which violates another constraint")
+    @Test
+    public void givenStarWithoutName_whenSaveStar_thenConstraintViolationIsRethrown() {
+        //given
+        star = Star.builder().distance(202).build();
+        given(starRepository.saveAndFlush(star)).willThrow(new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("not null", new SQLException(), null)));
+        //when+then
+        assertThrows(DataIntegrityViolationException.class, () -> starService.createStar(star));
+    }
+
+
+    @DisplayName("JUnit test for createStars batch method")
+    @Test
+    public void givenStarsBatch_whenCreateStars_thenReturnResultOfEveryItem() {
+        //given
+        List<StarDto> batch = List.of(
+                new StarDto("STAR_1", 1),
+                new StarDto("STAR_2", 2),
+                new StarDto("STAR_2", 2),
+                new StarDto(" ", 3),
+                new StarDto("STAR_1", 4));
+        given(starRepository.findByNameIn(Set.of("STAR_1", "STAR_2"))).willReturn(List.of(new Star(1L, "STAR_1", 1)));
+        given(starRepository.saveAll(anyList())).willAnswer(invocation -> {
+            List<Star> stars = invocation.getArgument(0);
+            long id = 100;
+            for (Star star : stars) {
+                star.setId(id++);
+            }
+            return stars;
+        });
+        //when
+        List<StarBatchResult> results = starService.createStars(batch);
         //then
-        verify(starRepository, never()).save(any(Star.class));
+        assertThat(results).extracting(StarBatchResult::getStatus).containsExactly(
+                StarBatchResult.Status.DUPLICATE,
+                StarBatchResult.Status.CREATED,
+                StarBatchResult.Status.DUPLICATE,
+                StarBatchResult.Status.INVALID,
+                StarBatchResult.Status.CREATED);
+        assertThat(results).extracting(StarBatchResult::getId).containsExactly(null, 100L, null, null, 101L);
+        assertThat(results).extracting(StarBatchResult::getIndex).containsExactly(0, 1, 2, 3, 4);
+        verify(starRepository, times(1)).flushAndClear();
+    }
+
+    @DisplayName("JUnit test for createStars batch method racing a concurrent insert")
+    @Test
+    public void givenStarInsertedConcurrently_whenCreateStars_thenThrowsException() {
+        //given
+        given(starRepository.findByNameIn(Set.of("STAR_1"))).willReturn(List.of());
+        given(starRepository.saveAll(anyList())).willAnswer(invocation -> invocation.getArgument(0));
+        willThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException(), "PUBLIC.STAR_NAME_DISTANCE_UQ_INDEX_2")))
+                .given(starRepository).flushAndClear();
+        String version = starService.getCatalogVersion();
+        //when
+        assertThrows(ResourceNotFoundException.class, () -> starService.createStars(List.of(new StarDto("STAR_1", 1))));
+        //then
+        assertThat(starService.getCatalogVersion()).isEqualTo(version);
     }
 
+    @DisplayName("JUnit test for getCatalogVersion method")
+    @Test
+    public void givenModifications_whenGetCatalogVersion_thenVersionChangesOnlyWhenStarsChange() {
+        //given
+        star = Star.builder().name("STAR_121").distance(22).build();
+        given(starRepository.saveAndFlush(star)).willReturn(star);
+        given(starRepository.deleteStarById(1L)).willReturn(0);
+        String initialVersion = starService.getCatalogVersion();
+        //when+then
+        starService.deleteStar(1L);
+        assertThat(starService.getCatalogVersion()).isEqualTo(initialVersion);
+        starService.createStar(star);
+        assertThat(starService.getCatalogVersion()).isNotEqualTo(initialVersion);
+    }
 
     @DisplayName("JUnit test for getAllStars method")
     @Test
     public void givenStarsList_whenGetAllStars_thenReturnStarsList() {
         //given
-        given(starRepository.findAll()).willReturn(prepirMockData());
+        given(starRepository.findAllValues()).willReturn(prepirMockData());
         //when
-        List<Star> starsList = starRepository.findAll();
+        List<Star> starsList = starRepository.findAllValues();
         //then
         assertThat(starsList).isNotNull();
         assertThat(starsList.size()).isEqualTo(9999);
@@ -86,7 +177,7 @@ class StarServiceTests {
     @Test
     public void givenEmptyStarsList_whenGetAllStars_thenReturnEmptyStarsList() {
         //given
-        given(starRepository.findAll()).willReturn(Collections.emptyList());
+        given(starRepository.findAllValues()).willReturn(Collections.emptyList());
         //when
         List<Star> employeeList = starService.getAllStarts();
         //then
@@ -94,6 +185,33 @@ class StarServiceTests {
         assertThat(employeeList.size()).isEqualTo(0);
     }
 
+    @DisplayName("JUnit test for getStarsPage method")
+    @Test
+    public void givenCursor_whenGetStarsPage_thenRepositoryIsAskedForKeysetPage() {
+        //given
+        List<Star> page = List.of(new Star(6L, "STAR_6", 6));
+        given(starRepository.findPageAfter(5L, PageRequest.of(0, 1))).willReturn(page);
+        given(starRepository.findPageAfter(Long.MIN_VALUE, PageRequest.of(0, StarService.MAX_PAGE_SIZE))).willReturn(List.of());
+        //when+then
+        assertThat(starService.getStarsPage(5L, 1)).isEqualTo(page);
+        assertThat(starService.getStarsPage(null, 1_000_000)).isEmpty();
+        assertThrows(ResourceNotFoundException.class, () -> starService.getStarsPage(5L, 0));
+    }
+
+    @DisplayName("JUnit test for exportStars method")
+    @Test
+    public void givenStarsStream_whenExportStars_thenEveryStarIsWritten() {
+        //given
+        List<Star> stars = List.of(new Star(1L, "STAR_1", 1), new Star(2L, "STAR_2", 2));
+        given(starRepository.streamAll()).willReturn(stars.stream());
+        List<Star> written = new ArrayList<>();
+        //when
+        long exported = starService.exportStars(written::add);
+        //then
+        assertThat(exported).isEqualTo(2);
+        assertThat(written).isEqualTo(stars);
+    }
+
     @DisplayName("JUnit test for getStarById method")
     @Test
     public void givenStarId_whenGetStarById_thenReturnStarObject() {
@@ -106,19 +224,117 @@ class StarServiceTests {
         assertThat(getStar).isNotNull();
     }
 
-    @DisplayName("JUnit test for updateStar method")
+    @DisplayName("JUnit test for getStarById method served from the cache")
     @Test
-    public void givenStarObj_whenUpdateStar_thenReturnUpdatedStar() {
+    public void givenCachedStar_whenGetStarById_thenRepositoryIsNotHitAgain() {
+        //given
+        star = Star.builder().id(100L).name("STAR_100").distance(42).build();
+        given(starRepository.findById(100L)).willReturn(Optional.of(star));
+        given(starRepository.findById(101L)).willReturn(Optional.empty());
+        //when
+        starService.getStarById(100L).get().setName("MODIFIED_BY_CALLER");
+        Star cachedStar = starService.getStarById(100L).get();
+        starService.getStarById(101L);
+        //then
+        assertThat(cachedStar.getName()).isEqualTo("STAR_100");
+        verify(starRepository, times(1)).findById(100L);
+        LruCache.Stats stats = starService.getCacheStats();
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getMisses()).isEqualTo(2);
+        assertThat(stats.getSize()).isEqualTo(1);
+    }
+
+    @DisplayName("JUnit test for getStarById racing a committed update")
+    @Test
+    public void givenUpdateCommittedDuringRead_whenGetStarById_thenStaleStarIsNotCached() {
+        //given
+        Star stale = new Star(10L, "STAR_1", 2, 0L);
+        Star fresh = new Star(10L, "StarXYZ", 12, 1L);
+        given(starRepository.updateNameAndDistance(10L, "StarXYZ", 12)).willReturn(1);
+        given(starRepository.findById(10L)).willAnswer(invocation -> {
+            // the update commits, and invalidates the id, after the row was read
+            starService.updateStar(10L, new StarDto("StarXYZ", 12));
+            return Optional.of(stale);
+        }).willReturn(Optional.of(fresh));
+        //when
+        Star first = starService.getStarById(10L).get();
+        Star second = starService.getStarById(10L).get();
+        //then
+        assertThat(first.getName()).isEqualTo("STAR_1");
+        assertThat(second.getName()).isEqualTo("StarXYZ");
+        assertThat(starService.getStarById(10L).get().getVersion()).isEqualTo(1L);
+        verify(starRepository, times(2)).findById(10L);
+    }
+
+    @DisplayName("JUnit test for getStarById cache after update and delete")
+    @Test
+    public void givenCachedStar_whenUpdateAndDeleteStar_thenCacheIsInvalidated() {
         //given
         star = Star.builder().id(10L).name("STAR_1").distance(2).build();
-        given(starRepository.save(star)).willReturn(star);
-        star.setName("StarXYZ");
-        star.setDistance(12);
+        given(starRepository.findById(10L))
+                .willReturn(Optional.of(star), Optional.of(new Star(10L, "StarXYZ", 12, 1L)), Optional.empty());
+        given(starRepository.updateNameAndDistance(10L, "StarXYZ", 12)).willReturn(1);
+        given(starRepository.deleteStarById(10L)).willReturn(1);
+        starService.getStarById(10L);
+        //when+then
+        starService.updateStar(10L, new StarDto("StarXYZ", 12));
+        assertThat(starService.getStarById(10L).get().getName()).isEqualTo("StarXYZ");
+        assertThat(starService.getStarById(10L).get().getName()).isEqualTo("StarXYZ");
+        starService.deleteStar(10L);
+        assertThat(starService.getStarById(10L)).isEmpty();
+        verify(starRepository, times(3)).findById(10L);
+    }
+
+    @DisplayName("JUnit test for the cache time to live and size bound")
+    @Test
+    public void givenExpiredOrEldestEntries_whenGet_thenTheyAreEvicted() {
+        //given
+        long[] now = {0};
+        LruCache<Long, String> cache = new LruCache<>(2, Duration.ofSeconds(1), () -> now[0]);
+        cache.put(1L, "STAR_1");
+        cache.put(2L, "STAR_2");
+        //when+then
+        cache.put(3L, "STAR_3");
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.get(2L)).isEqualTo("STAR_2");
+        now[0] = Duration.ofSeconds(1).toNanos();
+        assertThat(cache.get(3L)).isNull();
+        assertThat(cache.stats().getEvictions()).isEqualTo(2);
+    }
+
+    @DisplayName("JUnit test for updateStar method with a single UPDATE statement")
+    @Test
+    public void givenStarDto_whenUpdateStarById_thenRowCountDecidesTheResult() {
+        //given
+        given(starRepository.updateNameAndDistance(10L, "StarXYZ", 12)).willReturn(1);
+        given(starRepository.updateNameAndDistance(11L, "StarXYZ", 12)).willReturn(0);
+        given(starRepository.findVersionById(10L)).willReturn(Optional.of(4L));
         //when
-        Star updatedStar = starService.updateStar(star);
+        Optional<Star> updatedStar = starService.updateStar(10L, new StarDto("StarXYZ", 12));
+        Optional<Star> missingStar = starService.updateStar(11L, new StarDto("StarXYZ", 12));
         //then
-        assertThat(updatedStar.getName()).isEqualTo("StarXYZ");
-        assertThat(updatedStar.getDistance()).isEqualTo(12);
+        assertThat(updatedStar).isPresent();
+        assertThat(updatedStar.get().getName()).isEqualTo("StarXYZ");
+        assertThat(updatedStar.get().getVersion()).isEqualTo(4L);
+        assertThat(missingStar).isEmpty();
+        verify(starRepository, never()).findById(anyLong());
+        verify(starRepository, never()).save(any(Star.class));
+    }
+
+    @DisplayName("JUnit test for patchStar method")
+    @Test
+    public void givenPatchAndVersion_whenPatchStar_thenReturnOutcome() {
+        //given
+        StarPatchDto patch = new StarPatchDto(null, 12L);
+        given(starRepository.patch(10L, null, 12L, 3L)).willReturn(1);
+        given(starRepository.patch(10L, null, 12L, 2L)).willReturn(0);
+        given(starRepository.patch(11L, null, 12L, 2L)).willReturn(0);
+        given(starRepository.existsById(10L)).willReturn(true);
+        given(starRepository.existsById(11L)).willReturn(false);
+        //when+then
+        assertThat(starService.patchStar(10L, patch, 3L)).isEqualTo(StarService.PatchResult.UPDATED);
+        assertThat(starService.patchStar(10L, patch, 2L)).isEqualTo(StarService.PatchResult.VERSION_CONFLICT);
+        assertThat(starService.patchStar(11L, patch, 2L)).isEqualTo(StarService.PatchResult.NOT_FOUND);
     }
 
     @DisplayName("JUnit test for deleteStar method")
@@ -126,31 +342,116 @@ class StarServiceTests {
     public void givenStarId_whenDeleteStar_thenNothing() {
         //given
         long starId = 1L;
-        willDoNothing().given(starRepository).deleteById(starId);
+        given(starRepository.deleteStarById(starId)).willReturn(1);
+        //when
+        boolean deleted = starService.deleteStar(starId);
+        //then
+        assertThat(deleted).isTrue();
+        verify(starRepository, times(1)).deleteStarById(starId);
+        verify(starRepository, never()).findById(starId);
+    }
+
+    @DisplayName("JUnit test for deleteStar method when the Star does not exist")
+    @Test
+    public void givenMissingStarId_whenDeleteStar_thenReturnFalse() {
+        //given
+        given(starRepository.deleteStarById(1L)).willReturn(0);
+        //when+then
+        assertThat(starService.deleteStar(1L)).isFalse();
+    }
+
+    @DisplayName("JUnit test for deleteStarsByDistance method")
+    @Test
+    public void givenDistanceRange_whenDeleteStarsByDistance_thenNameIndexIsReloaded() {
+        //given
+        given(starRepository.findAllValuesFromPrimary()).willReturn(
+                List.of(new Star(1L, "STAR_1", 1), new Star(2L, "STAR_1", 200)),
+                List.of(new Star(1L, "STAR_1", 1)));
+        given(starRepository.deleteStarsByDistance(100, Long.MAX_VALUE)).willReturn(1);
+        //when+then
+        assertThat(starService.areNamesUnique()).isFalse();
+        assertThat(starService.deleteStarsByDistance(100, Long.MAX_VALUE)).isEqualTo(1);
+        assertThat(starService.areNamesUnique()).isTrue();
+    }
+
+    @DisplayName("JUnit test for areNamesUnique method racing a committed change")
+    @Test
+    public void givenChangeCommittedDuringIndexRead_whenAreNamesUnique_thenReadIsRetried() {
+        //given
+        given(starRepository.deleteStarById(2L)).willReturn(1);
+        given(starRepository.findAllValuesFromPrimary()).willAnswer(invocation -> {
+            // the delete commits while the Stars are being read, the index is not built yet to receive it
+            starService.deleteStar(2L);
+            return List.of(new Star(1L, "STAR_1", 1), new Star(2L, "STAR_1", 2));
+        }).willReturn(List.of(new Star(1L, "STAR_1", 1)));
         //when
-        starService.deleteStar(starId);
+        boolean unique = starService.areNamesUnique();
         //then
-        verify(starRepository, times(1)).deleteById(starId);
+        assertThat(unique).isTrue();
+        verify(starRepository, times(2)).findAllValuesFromPrimary();
+    }
+
+    @DisplayName("JUnit test for deleteStars method by ids")
+    @Test
+    public void givenIds_whenDeleteStars_thenOneStatementIsIssued() {
+        //given
+        List<Long> ids = List.of(1L, 2L);
+        given(starRepository.deleteStarsByIds(ids)).willReturn(2);
+        //when+then
+        assertThat(starService.deleteStars(ids)).isEqualTo(2);
+        assertThat(starService.deleteStars(List.of())).isEqualTo(0);
+        verify(starRepository, times(1)).deleteStarsByIds(any());
     }
 
     @DisplayName("JUnit test for areNamesUnique method")
     @Test
     public void givenStarsList_whenAreNamesUnique_thenReturnTrueOrFalse() throws IOException {
         //given
-        given(starRepository.findAll()).willReturn(prepirMockData());
-        List<Star> starsList = starRepository.findAll();
+        given(starRepository.findAllValues()).willReturn(prepirMockData());
+        List<Star> starsList = starRepository.findAllValues();
         //when+then
         assertThat(starService.areNamesUnique(starsList)).isEqualTo(true);
         starsList.add(new Star("STAR_100", 100));
         assertThat(starService.areNamesUnique(starsList)).isEqualTo(false);
     }
 
+    @DisplayName("JUnit test for areNamesUnique method backed by the name index")
+    @Test
+    public void givenPersistedStars_whenAreNamesUnique_thenIndexIsBuiltOnceAndMaintained() {
+        //given
+        List<Star> stars = List.of(new Star(1L, "STAR_1", 1), new Star(2L, "STAR_2", 2));
+        given(starRepository.findAllValuesFromPrimary()).willReturn(stars);
+        given(starRepository.updateNameAndDistance(3L, "STAR_1", 7)).willReturn(1);
+        given(starRepository.deleteStarById(3L)).willReturn(1);
+        //when+then
+        assertThat(starService.areNamesUnique()).isTrue();
+        starService.updateStar(3L, new StarDto("STAR_1", 7));
+        assertThat(starService.areNamesUnique()).isFalse();
+        assertThat(starService.findDuplicateNames()).containsExactly("STAR_1");
+        starService.deleteStar(3L);
+        assertThat(starService.areNamesUnique()).isTrue();
+        assertThat(starService.findDuplicateNames()).isEmpty();
+        verify(starRepository, times(1)).findAllValuesFromPrimary();
+    }
+
+    @DisplayName("JUnit test for areNamesUnique method when a star is renamed")
+    @Test
+    public void givenRenamedStar_whenAreNamesUnique_thenPreviousNameIsReleased() {
+        //given
+        given(starRepository.findAllValuesFromPrimary()).willReturn(List.of(new Star(1L, "STAR_1", 1), new Star(2L, "STAR_1", 2)));
+        given(starRepository.updateNameAndDistance(2L, "STAR_2", 2)).willReturn(1);
+        //when+then
+        assertThat(starService.findDuplicateNames()).containsExactly("STAR_1");
+        starService.updateStar(2L, new StarDto("STAR_2", 2));
+        assertThat(starService.areNamesUnique()).isTrue();
+    }
+
     @DisplayName("JUnit test for findClosestStars method")
     @Test
     public void givenStarsList_whenFindClosestStars_thenReturnStarsListWithSizeIndicated() throws IOException {
         //given
-        given(starRepository.findAll()).willReturn(prepirMockData());
-        List<Star> starsList = starRepository.findAll();
+        given(starRepository.findAllValues()).willReturn(prepirMockData());
+        List<Star> starsList = starRepository.findAllValues();
         //when
         List<Star> closestStars = starService.findClosestStars(starsList, 3);
         //then
@@ -160,12 +461,94 @@ class StarServiceTests {
         assertThat(new Star("STAR_3", 3)).isEqualTo(closestStars.get(2));
     }
 
+    @DisplayName("JUnit test for findClosestStars method when size exceeds the list")
+    @Test
+    public void givenShortStarsList_whenFindClosestStars_thenReturnWholeListSorted() throws IOException {
+        //given
+        List<Star> starsList = List.of(new Star("STAR_9", 9), new Star("STAR_4", 4), new Star("STAR_7", 7));
+        //when
+        List<Star> closestStars = starService.findClosestStars(starsList, 5);
+        //then
+        assertThat(closestStars).extracting(Star::getDistance).containsExactly(4L, 7L, 9L);
+        assertThrows(ResourceNotFoundException.class, () -> starService.findClosestStars(starsList, 0));
+    }
+
+    @DisplayName("JUnit test for findClosestStars method backed by the repository")
+    @Test
+    public void givenSize_whenFindClosestPersistedStars_thenRepositoryIsAskedForThatPage() {
+        //given
+        List<Star> closest = List.of(new Star("STAR_1", 1), new Star("STAR_2", 2));
+        given(starRepository.findClosest(PageRequest.of(0, 2))).willReturn(closest);
+        //when
+        List<Star> closestStars = starService.findClosestStars(2);
+        //then
+        assertThat(closestStars).isEqualTo(closest);
+        verify(starRepository, never()).findAllValues();
+        assertThrows(ResourceNotFoundException.class, () -> starService.findClosestStars(-1));
+    }
+
+    @DisplayName("JUnit test for findClosestStars method with a size above the page cap")
+    @Test
+    public void givenSizeAboveCap_whenFindClosestPersistedStars_thenPageIsCapped() {
+        //given
+        List<Star> closest = List.of(new Star("STAR_1", 1));
+        given(starRepository.findClosest(PageRequest.of(0, StarService.MAX_PAGE_SIZE))).willReturn(closest);
+        //when
+        List<Star> closestStars = starService.findClosestStars(Integer.MAX_VALUE);
+        //then
+        assertThat(closestStars).isEqualTo(closest);
+    }
+
+    @DisplayName("JUnit test for findNearestStars method")
+    @Test
+    public void givenReferenceDistance_whenFindNearestStars_thenMergeBothSidesOutward() {
+        //given
+        PageRequest page = PageRequest.of(0, 4);
+        given(starRepository.findFromDistanceUp(100, page))
+                .willReturn(List.of(new Star(1L, "A", 100), new Star(2L, "B", 103), new Star(3L, "C", 150)));
+        given(starRepository.findBelowDistanceDown(100, page))
+                .willReturn(List.of(new Star(4L, "D", 98), new Star(5L, "E", 97), new Star(6L, "F", 10)));
+        //when
+        List<Star> nearestStars = starService.findNearestStars(100, 4);
+        //then
+        assertThat(nearestStars).extracting(Star::getId).containsExactly(1L, 4L, 2L, 5L);
+        verify(starRepository, never()).findAllValues();
+    }
+
+    @DisplayName("JUnit test for findNearestStars method at the end of the catalog")
+    @Test
+    public void givenNothingBelow_whenFindNearestStars_thenReturnStarsAbove() {
+        //given
+        PageRequest page = PageRequest.of(0, StarService.MAX_PAGE_SIZE);
+        given(starRepository.findFromDistanceUp(Long.MIN_VALUE, page))
+                .willReturn(List.of(new Star(1L, "A", Long.MIN_VALUE), new Star(2L, "B", Long.MAX_VALUE)));
+        given(starRepository.findBelowDistanceDown(Long.MIN_VALUE, page)).willReturn(Collections.emptyList());
+        //when
+        List<Star> nearestStars = starService.findNearestStars(Long.MIN_VALUE, Integer.MAX_VALUE);
+        //then
+        assertThat(nearestStars).extracting(Star::getId).containsExactly(1L, 2L);
+        assertThrows(ResourceNotFoundException.class, () -> starService.findNearestStars(0, 0));
+    }
+
+    @DisplayName("JUnit test for findStarsInRange method")
+    @Test
+    public void givenRange_whenFindStarsInRange_thenQueryTheDistanceIndexWithCappedLimit() {
+        //given
+        List<Star> inRange = List.of(new Star(1L, "A", 10), new Star(2L, "B", 20));
+        given(starRepository.findByDistanceBetween(10, 20, PageRequest.of(0, StarService.MAX_PAGE_SIZE))).willReturn(inRange);
+        //when
+        List<Star> stars = starService.findStarsInRange(10, 20, 5000);
+        //then
+        assertThat(stars).isEqualTo(inRange);
+        assertThrows(ResourceNotFoundException.class, () -> starService.findStarsInRange(10, 20, -1));
+    }
+
     @DisplayName("JUnit test for filterByRegExpr method")
     @Test
     public void givenStarsList_whenFilterByRegExpr_thenReturnStarsListMatchedToRegex() {
         //given
-        given(starRepository.findAll()).willReturn(prepirMockData());
-        List<Star> starsList = starRepository.findAll();
+        given(starRepository.findAllValues()).willReturn(prepirMockData());
+        List<Star> starsList = starRepository.findAllValues();
         //when
         List<Star> filteredStars = starService.filterByRegExpr(starsList, "[A-Z]+_[0-9]{1}");
         //then
@@ -176,12 +559,301 @@ class StarServiceTests {
         filteredStars.forEach(s -> assertTrue(s.getDistance() > 9 && s.getDistance() < 20));
     }
 
+    @DisplayName("JUnit test for filterByRegExpr method with a literal prefix")
+    @Test
+    public void givenRegexWithLiteralPrefix_whenFilterByRegExpr_thenOnlyCandidatesAreLoaded() {
+        //given
+        List<Star> candidates = prepirMockData().stream()
+                .filter(s -> s.getName().startsWith("STAR_1"))
+                .collect(Collectors.toList());
+        given(starRepository.findValuesByNameLike("STAR\\_1%")).willReturn(candidates);
+        //when
+        List<Star> filteredStars = starService.filterByRegExpr("STAR_1[0-9]{1}");
+        //then
+        assertThat(filteredStars.size()).isEqualTo(10);
+        verify(starRepository, never()).findAllValues();
+    }
+
+    @DisplayName("JUnit test for filterByRegExpr method without a literal prefix")
+    @Test
+    public void givenRegexWithoutLiteralPrefix_whenFilterByRegExpr_thenAllStarsAreScanned() {
+        //given
+        given(starRepository.findAllValues()).willReturn(prepirMockData());
+        //when
+        List<Star> filteredStars = starService.filterByRegExpr("[A-Z]+_[0-9]{1}");
+        //then
+        assertEquals(9, filteredStars.size());
+        verify(starRepository, never()).findValuesByNameLike(any());
+    }
+
+    @DisplayName("JUnit test for searchByName method by prefix")
+    @Test
+    public void givenPrefix_whenSearchByName_thenReturnStarsOrderedByNameFromTheIndex() {
+        //given
+        given(starRepository.findAllValuesFromPrimary()).willReturn(prepirMockData().stream()
+                .map(s -> new Star((long) s.getDistance(), s.getName(), s.getDistance()))
+                .collect(Collectors.toList()));
+        given(starRepository.findValuesByIds(List.of(12L, 120L, 1200L)))
+                .willReturn(List.of(new Star(1200L, "STAR_1200", 1200), new Star(12L, "STAR_12", 12), new Star(120L, "STAR_120", 120)));
+        //when
+        List<Star> stars = starService.searchByName("STAR_12", null, 3);
+        //then
+        assertThat(stars).extracting(Star::getName).containsExactly("STAR_12", "STAR_120", "STAR_1200");
+        verify(starRepository, never()).findValuesByNameLike(any());
+    }
+
+    @DisplayName("JUnit test for searchByName method by substring")
+    @Test
+    public void givenSubstring_whenSearchByName_thenTrigramIndexIsMaintained() {
+        //given
+        given(starRepository.findAllValuesFromPrimary()).willReturn(List.of(new Star(1L, "ALPHA CENTAURI", 4), new Star(2L, "SIRIUS", 9)));
+        given(starRepository.updateNameAndDistance(2L, "PROXIMA CENTAURI", 4)).willReturn(1);
+        given(starRepository.findValuesByIds(List.of(1L, 2L)))
+                .willReturn(List.of(new Star(1L, "ALPHA CENTAURI", 4), new Star(2L, "PROXIMA CENTAURI", 4)));
+        //when+then
+        assertThat(starService.searchByName(null, "PROXIMA", 10)).isEmpty();
+        starService.updateStar(2L, new StarDto("PROXIMA CENTAURI", 4));
+        assertThat(starService.searchByName(null, "CENTAURI", 10))
+                .extracting(Star::getId).containsExactly(1L, 2L);
+        assertThat(starService.searchByName("", "SIRIUS", 10)).isEmpty();
+        verify(starRepository, times(1)).findAllValuesFromPrimary();
+    }
+
+    @DisplayName("JUnit test for searchByName method which throws exception")
+    @Test
+    public void givenNonPositiveLimit_whenSearchByName_thenExceptionShouldBeThrown() {
+        assertThrows(ResourceNotFoundException.class, () -> starService.searchByName("STAR", null, 0));
+        verifyNoInteractions(starRepository);
+    }
+
+    @DisplayName("JUnit test for getDistanceStats method")
+    @Test
+    public void givenStarsList_whenGetDistanceStats_thenReturnAggregatesWithinRelativeAccuracy() {
+        //given
+        given(starRepository.findAllValuesFromPrimary()).willReturn(prepirMockData().stream()
+                .map(s -> new Star((long) s.getDistance(), s.getName(), s.getDistance()))
+                .collect(Collectors.toList()));
+        //when
+        StarStats stats = starService.getDistanceStats();
+        //then
+        assertThat(stats.getCount()).isEqualTo(9999);
+        assertThat(stats.getMin()).isEqualTo(1);
+        assertThat(stats.getMax()).isEqualTo(9999);
+        assertThat(stats.getMean()).isEqualTo(5000.0);
+        assertThat(stats.getPercentiles()).containsOnlyKeys("p50", "p90", "p95", "p99", "p999");
+        assertThat(stats.getPercentiles().get("p50")).isCloseTo(5000L, withinPercentage(1));
+        assertThat(stats.getPercentiles().get("p99")).isCloseTo(9900L, withinPercentage(1));
+    }
+
+    @DisplayName("JUnit test for getDistanceStats method after changes")
+    @Test
+    public void givenChanges_whenGetDistanceStats_thenAggregatesAreMaintainedWithoutReload() {
+        //given
+        given(starRepository.findAllValuesFromPrimary()).willReturn(List.of(new Star(1L, "SUN", 10), new Star(2L, "SIRIUS", 20)));
+        given(starRepository.updateNameAndDistance(2L, "SIRIUS", 40)).willReturn(1);
+        given(starRepository.deleteStarById(1L)).willReturn(1);
+        //when+then
+        assertThat(starService.getDistanceStats().getMean()).isEqualTo(15.0);
+        starService.updateStar(2L, new StarDto("SIRIUS", 40));
+        assertThat(starService.getDistanceStats().getMax()).isEqualTo(40);
+        starService.deleteStar(1L);
+        StarStats stats = starService.getDistanceStats();
+        assertThat(stats.getCount()).isEqualTo(1);
+        assertThat(stats.getMin()).isEqualTo(40);
+        assertThat(stats.getPercentiles().get("p50")).isEqualTo(40);
+        verify(starRepository, times(1)).findAllValuesFromPrimary();
+    }
+
+    @DisplayName("JUnit test for DistanceSketch merge method")
+    @Test
+    public void givenTwoSketches_whenMerge_thenQuantilesMatchOneSketchOfAllValues() {
+        //given
+        DistanceSketch all = new DistanceSketch(StarDistanceStats.RELATIVE_ACCURACY);
+        DistanceSketch odd = new DistanceSketch(StarDistanceStats.RELATIVE_ACCURACY);
+        DistanceSketch even = new DistanceSketch(StarDistanceStats.RELATIVE_ACCURACY);
+        for (long i = -500; i < 100_000; i++) {
+            all.add(i);
+            (i % 2 == 0 ? even : odd).add(i);
+        }
+        //when
+        odd.merge(even);
+        //then
+        assertThat(odd.count()).isEqualTo(all.count());
+        for (double q : new double[]{0, 0.001, 0.5, 0.99, 1}) {
+            assertThat(odd.quantile(q)).isEqualTo(all.quantile(q));
+        }
+        assertThat(all.quantile(0)).isCloseTo(-500L, withinPercentage(1));
+        assertThat(all.quantile(0.5)).isCloseTo(49_749L, withinPercentage(1));
+        assertThrows(IllegalArgumentException.class, () -> odd.merge(new DistanceSketch(0.05)));
+    }
+
+    @DisplayName("JUnit test for loadIndexes method")
+    @Test
+    public void givenLoadedIndexes_whenBuildIndexesAndQuery_thenRepositoryIsNotRead(@TempDir Path directory) {
+        //given
+        String version = starService.loadIndexes(List.of(new Star(1L, "SUN", 10), new Star(2L, "SUN", 30)));
+        StarProperties.Snapshot properties = new StarProperties.Snapshot();
+        properties.setPath(directory.resolve("stars.snap"));
+        StarSnapshotWriter writer = new StarSnapshotWriter(starService, properties);
+        //when
+        starService.buildIndexes();
+        writer.markWritten(version);
+        writer.writeIfChanged();
+        //then
+        assertThat(version).isEqualTo(starService.getCatalogVersion());
+        assertThat(starService.areNamesUnique()).isFalse();
+        assertThat(starService.getDistanceStats().getMean()).isEqualTo(20.0);
+        assertThat(properties.getPath()).doesNotExist();
+        verifyNoInteractions(starRepository);
+    }
+
+    @DisplayName("JUnit test for subscribeToChanges method")
+    @Test
+    public void givenSubscriber_whenStarsChange_thenChangesAreSentInOrder() throws Exception {
+        //given
+        Star sun = Star.builder().id(1L).name("SUN").distance(0).build();
+        given(starRepository.saveAndFlush(sun)).willReturn(sun);
+        given(starRepository.deleteStarById(1L)).willReturn(1);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        starService.subscribeToChanges(null, subscriber).orElseThrow();
+        //when
+        starService.createStar(sun);
+        starService.deleteStar(1L);
+        //then
+        StarChange created = subscriber.next();
+        assertThat(created.getType()).isEqualTo(StarChange.Type.CREATED);
+        assertThat(created.getSequence()).isEqualTo(1);
+        assertThat(created.getName()).isEqualTo("SUN");
+        StarChange deleted = subscriber.next();
+        assertThat(deleted.getType()).isEqualTo(StarChange.Type.DELETED);
+        assertThat(deleted.getSequence()).isEqualTo(2);
+        assertThat(deleted.getId()).isEqualTo(1L);
+    }
+
+    @DisplayName("JUnit test for StarChangeFeed subscribe method resuming from an event id")
+    @Test
+    public void givenLastEventId_whenSubscribe_thenResumeFromTheBufferOrResync() throws Exception {
+        //given
+        StarChangeFeed feed = new StarChangeFeed("run2", 4, 16, 10, Duration.ofSeconds(10));
+        for (long id = 1; id <= 6; id++) {
+            feed.publish(StarChange.deleted(id));
+        }
+        RecordingSubscriber resumed = new RecordingSubscriber();
+        RecordingSubscriber tooFarBehind = new RecordingSubscriber();
+        RecordingSubscriber aheadOfThisRun = new RecordingSubscriber();
+        RecordingSubscriber malformed = new RecordingSubscriber();
+        //when
+        feed.subscribe("run2-3", resumed).orElseThrow();
+        feed.subscribe("run2-1", tooFarBehind).orElseThrow();
+        feed.subscribe("run2-99", aheadOfThisRun).orElseThrow();
+        feed.subscribe("5", malformed).orElseThrow();
+        //then
+        assertThat(List.of(resumed.next(), resumed.next(), resumed.next()))
+                .extracting(StarChange::getEventId).containsExactly("run2-4", "run2-5", "run2-6");
+        assertThat(tooFarBehind.next().getType()).isEqualTo(StarChange.Type.RESYNC);
+        assertThat(aheadOfThisRun.next().getType()).isEqualTo(StarChange.Type.RESYNC);
+        assertThat(malformed.next().getType()).isEqualTo(StarChange.Type.RESYNC);
+        feed.close();
+        assertThat(resumed.completed.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @DisplayName("JUnit test for StarChangeFeed subscribe method with an event id of an earlier run")
+    @Test
+    public void givenEventIdOfEarlierRun_whenSubscribe_thenResyncInsteadOfReplayingThisRun() throws Exception {
+        //given
+        StarChangeFeed feed = new StarChangeFeed("run2", 16, 16, 10, Duration.ofSeconds(10));
+        for (long id = 1; id <= 6; id++) {
+            feed.publish(StarChange.deleted(id));
+        }
+        RecordingSubscriber fromEarlierRun = new RecordingSubscriber();
+        //when
+        feed.subscribe("run1-3", fromEarlierRun).orElseThrow();
+        feed.publish(StarChange.deleted(7L));
+        //then
+        StarChange resync = fromEarlierRun.next();
+        assertThat(resync.getType()).isEqualTo(StarChange.Type.RESYNC);
+        assertThat(resync.getEventId()).isEqualTo("run2-6");
+        assertThat(fromEarlierRun.next().getEventId()).isEqualTo("run2-7");
+        feed.close();
+    }
+
+    @DisplayName("JUnit test for StarChangeFeed disconnecting a slow subscriber")
+    @Test
+    public void givenSlowSubscriber_whenItsBufferOverflows_thenItIsDisconnected() throws Exception {
+        //given
+        StarChangeFeed feed = new StarChangeFeed("run", 16, 2, 10, Duration.ofSeconds(10));
+        CountDownLatch blocked = new CountDownLatch(1);
+        RecordingSubscriber slow = new RecordingSubscriber() {
+            @Override
+            public void send(StarChange change) {
+                blocked.countDown();
+                sleepUninterruptibly();
+            }
+        };
+        feed.subscribe(null, slow).orElseThrow();
+        feed.publish(StarChange.deleted(1L));
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        //when
+        for (long id = 2; id <= 5; id++) {
+            feed.publish(StarChange.deleted(id));
+        }
+        //then
+        assertThat(feed.getSubscriberCount()).isZero();
+        assertThat(slow.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        feed.close();
+    }
+
+    private static class RecordingSubscriber implements StarChangeFeed.Subscriber {
+        final BlockingQueue<StarChange> changes = new LinkedBlockingQueue<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void send(StarChange change) {
+            changes.add(change);
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        StarChange next() throws InterruptedException {
+            StarChange change = changes.poll(5, TimeUnit.SECONDS);
+            assertNotNull(change);
+            return change;
+        }
+
+        static void sleepUninterruptibly() {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @DisplayName("JUnit test for literalPrefix method")
+    @Test
+    public void givenRegex_whenLiteralPrefix_thenReturnTextEveryMatchStartsWith() {
+        assertEquals("STAR_1", StarNamePatterns.literalPrefix("STAR_1[0-9]+"));
+        assertEquals("STAR_1", StarNamePatterns.literalPrefix("^STAR_1.*"));
+        assertEquals("STAR_", StarNamePatterns.literalPrefix("STAR_1?"));
+        assertEquals("STAR.1", StarNamePatterns.literalPrefix("STAR\\.1\\d"));
+        assertEquals("", StarNamePatterns.literalPrefix("[A-Z]+_[0-9]{1}"));
+        assertEquals("", StarNamePatterns.literalPrefix("STAR_1|SUN"));
+        assertEquals("", StarNamePatterns.literalPrefix("(?i)star"));
+    }
+
     @DisplayName("JUnit test for listValidator method which throws exception")
     @Test
     public void givenStarsList_whenStarsListIsEmptyORNull_thenExceptionShouldBeThrown() {
         //given
-        given(starRepository.findAll()).willReturn(Collections.emptyList());
-        List<Star> starsList = starRepository.findAll();
+        given(starRepository.findAllValues()).willReturn(Collections.emptyList());
+        List<Star> starsList = starRepository.findAllValues();
         //when+then
         assertThrows(ResourceNotFoundException.class, () -> StarService.listValidator(starsList));
         assertThrows(ResourceNotFoundException.class, () -> StarService.listValidator(null));
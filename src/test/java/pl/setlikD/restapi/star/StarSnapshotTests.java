@@ -0,0 +1,134 @@
+package pl.setlikD.restapi.star;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StarSnapshotTests {
+
+    @TempDir
+    Path directory;
+
+    private static StarSnapshot.Writer prepareSnapshot() {
+        StarSnapshot.Writer writer = new StarSnapshot.Writer();
+        for (long id = 1; id <= 3000; id++) {
+            writer.add(new Star(id, "STAR" + id % 7 + "ż", -id * 1_000_000_000L, id % 3 == 0 ? null : id));
+        }
+        return writer;
+    }
+
+    private static List<Star> readAll(StarSnapshot snapshot) {
+        List<Star> stars = new ArrayList<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            stars.add(snapshot.star(i));
+        }
+        return stars;
+    }
+
+    @DisplayName("JUnit test for StarSnapshot write and open methods")
+    @Test
+    public void givenStars_whenSnapshotWrittenAndOpened_thenColumnsMatch() throws IOException {
+        //given
+        Path path = directory.resolve("nested/stars.snap");
+        //when
+        prepareSnapshot().writeTo(path);
+        StarSnapshot snapshot = StarSnapshot.open(path);
+        //then
+        assertThat(snapshot.size()).isEqualTo(3000);
+        assertThat(snapshot.getDictionarySize()).isEqualTo(7);
+        Star star = snapshot.star(2999);
+        assertThat(star.getId()).isEqualTo(3000);
+        assertThat(star.getName()).isEqualTo("STAR4ż");
+        assertThat(star.getDistance()).isEqualTo(-3_000_000_000_000L);
+        assertThat(star.getVersion()).isEqualTo(0);
+        assertThat(snapshot.version(0)).isEqualTo(1);
+        try (Stream<Path> files = Files.list(path.getParent())) {
+            assertThat(files).containsExactly(path);
+        }
+    }
+
+    @DisplayName("JUnit test for StarSnapshot open method with a damaged file")
+    @Test
+    public void givenDamagedFile_whenOpen_thenExceptionShouldBeThrown() throws IOException {
+        //given
+        Path tooShort = Files.write(directory.resolve("short.snap"), new byte[]{1, 2, 3});
+        Path truncated = directory.resolve("truncated.snap");
+        prepareSnapshot().writeTo(truncated);
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+        //when+then
+        assertThrows(IOException.class, () -> StarSnapshot.open(tooShort));
+        assertThrows(IOException.class, () -> StarSnapshot.open(truncated));
+    }
+
+    @DisplayName("JUnit test for StarSnapshot open method with a damaged name column or dictionary")
+    @Test
+    public void givenDamagedNames_whenOpen_thenExceptionNamingTheFileShouldBeThrown() throws IOException {
+        //given
+        Path snapshot = directory.resolve("stars.snap");
+        prepareSnapshot().writeTo(snapshot);
+        int nameRefsStart = 24 + 3 * 8 * 3000;
+        int offsetsStart = nameRefsStart + 4 * 3000;
+        Path badNameRef = damage(snapshot, "bad-name.snap", nameRefsStart + 4 * 1500, 7);
+        Path badOffset = damage(snapshot, "bad-offset.snap", offsetsStart + 4 * 3, -1);
+        //when
+        IOException nameRefException = assertThrows(IOException.class, () -> StarSnapshot.open(badNameRef));
+        IOException offsetException = assertThrows(IOException.class, () -> StarSnapshot.open(badOffset));
+        //then
+        assertThat(nameRefException.getMessage()).contains(badNameRef.toString()).contains("star:1500");
+        assertThat(offsetException.getMessage()).contains(badOffset.toString()).contains("dictionary name:3");
+    }
+
+    private Path damage(Path snapshot, String fileName, int position, int value) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(snapshot)).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putInt(position, value);
+        return Files.write(directory.resolve(fileName), bytes.array());
+    }
+
+    @DisplayName("JUnit test for StarSnapshotCli export and import methods")
+    @Test
+    public void givenSnapshot_whenExportedAndImported_thenSnapshotIsUnchanged() throws IOException {
+        //given
+        Path original = directory.resolve("stars.snap");
+        Path ndjson = directory.resolve("stars.ndjson");
+        Path imported = directory.resolve("imported.snap");
+        prepareSnapshot().writeTo(original);
+        //when
+        StarSnapshotCli.exportSnapshot(original, ndjson.toString());
+        StarSnapshotCli.importSnapshot(ndjson, imported);
+        //then
+        List<String> lines = Files.readAllLines(ndjson, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(3000);
+        assertThat(lines.get(0)).isEqualTo("{\"id\":1,\"name\":\"STAR1ż\",\"distance\":-1000000000,\"version\":1}");
+        assertThat(readAll(StarSnapshot.open(imported)))
+                .usingRecursiveFieldByFieldElementComparator()
+                .isEqualTo(readAll(StarSnapshot.open(original)));
+        assertThat(Files.readAllBytes(imported)).isEqualTo(Files.readAllBytes(original));
+    }
+
+    @DisplayName("JUnit test for StarSnapshotCli import method with a Star without id")
+    @Test
+    public void givenStarWithoutId_whenImported_thenExceptionShouldBeThrown() throws IOException {
+        //given
+        Path ndjson = Files.write(directory.resolve("stars.ndjson"),
+                "{\"id\":1,\"name\":\"SUN\",\"distance\":0}\n{\"name\":\"SIRIUS\",\"distance\":9}\n".getBytes(StandardCharsets.UTF_8));
+        Path snapshot = directory.resolve("stars.snap");
+        //when+then
+        assertThrows(IOException.class, () -> StarSnapshotCli.importSnapshot(ndjson, snapshot));
+        assertThat(snapshot).doesNotExist();
+    }
+}
@@ -0,0 +1,123 @@
+package pl.setlikD.restapi.threads;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class BoundedDataSourceTests {
+
+    private final DataSource target = mock(DataSource.class);
+
+    private BoundedDataSource prepareDataSource(int maxConcurrency, int maxWaiters, Duration acquireTimeout) throws SQLException {
+        given(target.getConnection()).willAnswer(invocation -> mock(Connection.class));
+        return new BoundedDataSource("dataSource", target, maxConcurrency, maxWaiters, acquireTimeout);
+    }
+
+    @DisplayName("JUnit test for BoundedDataSource returning the permit on close")
+    @Test
+    public void givenBorrowedConnection_whenClosedTwice_thenPermitIsReleasedOnce() throws SQLException {
+        //given
+        BoundedDataSource dataSource = prepareDataSource(2, 10, Duration.ofSeconds(5));
+        Connection connection = dataSource.getConnection();
+        assertThat(dataSource.getAvailablePermits()).isEqualTo(1);
+        //when
+        connection.close();
+        connection.close();
+        //then
+        assertThat(dataSource.getAvailablePermits()).isEqualTo(2);
+    }
+
+    @DisplayName("JUnit test for BoundedDataSource when the pool fails to return a connection")
+    @Test
+    public void givenFailingPool_whenGetConnection_thenPermitIsReleased() throws SQLException {
+        //given
+        given(target.getConnection()).willThrow(new SQLException("pool closed"));
+        BoundedDataSource dataSource = new BoundedDataSource("dataSource", target, 1, 10, Duration.ofSeconds(5));
+        //when
+        assertThrows(SQLException.class, dataSource::getConnection);
+        //then
+        assertThat(dataSource.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @DisplayName("JUnit test for BoundedDataSource waiting longer than the acquire timeout")
+    @Test
+    public void givenNoPermitLeft_whenGetConnection_thenTimesOut() throws SQLException {
+        //given
+        BoundedDataSource dataSource = prepareDataSource(1, 10, Duration.ofMillis(50));
+        dataSource.getConnection();
+        //when
+        SQLTransientConnectionException e = assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        //then
+        assertThat(e.getMessage()).startsWith("Timed out");
+        assertThat(dataSource.getAvailablePermits()).isZero();
+        verify(target, times(1)).getConnection();
+    }
+
+    @DisplayName("JUnit test for BoundedDataSource with the wait queue full")
+    @Test
+    public void givenMaxWaitersQueued_whenGetConnection_thenRejectedAtOnce() throws Exception {
+        //given
+        BoundedDataSource dataSource = prepareDataSource(1, 1, Duration.ofSeconds(30));
+        Connection connection = dataSource.getConnection();
+        CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (dataSource.getWaiting() == 0) {
+            Thread.onSpinWait();
+        }
+        //when
+        SQLTransientConnectionException e = assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        connection.close();
+        //then
+        assertThat(e.getMessage()).startsWith("Too many callers waiting");
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(dataSource.getAvailablePermits()).isZero();
+    }
+
+    @DisplayName("JUnit test for VirtualThreadConfiguration bounding the data sources")
+    @Test
+    public void givenVirtualThreadsProperty_whenContextStarts_thenDataSourceIsBoundedOnlyWhenEnabled() {
+        //given
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withUserConfiguration(PoolConfiguration.class, VirtualThreadConfiguration.class);
+        //when+then
+        runner.run(context -> assertThat(context.getBean(DataSource.class)).isSameAs(PoolConfiguration.POOL));
+        runner.withPropertyValues("star.virtual-threads.enabled=false")
+                .run(context -> assertThat(context.getBean(DataSource.class)).isSameAs(PoolConfiguration.POOL));
+        runner.withPropertyValues("star.virtual-threads.enabled=true", "star.virtual-threads.max-db-concurrency=3")
+                .run(context -> assertThat(context.getBean(DataSource.class)).isInstanceOfSatisfying(BoundedDataSource.class,
+                        dataSource -> assertThat(dataSource.getAvailablePermits()).isEqualTo(3)));
+    }
+
+    @Configuration
+    static class PoolConfiguration {
+
+        static final DataSource POOL = mock(DataSource.class);
+
+        @Bean
+        DataSource dataSource() {
+            return POOL;
+        }
+    }
+}